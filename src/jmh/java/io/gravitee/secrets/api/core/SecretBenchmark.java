@@ -0,0 +1,76 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.secrets.api.core;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reading {@link Secret} values stored as String or byte[], base64 encoded or not.
+ *
+ * @author GraviteeSource Team
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SecretBenchmark {
+
+    /**
+     * A password and a PEM certificate chain
+     */
+    @Param({ "16", "4096" })
+    public int length;
+
+    @Param({ "false", "true" })
+    public boolean base64;
+
+    @Param({ "String", "bytes" })
+    public String type;
+
+    private Secret secret;
+
+    @Setup
+    public void setup() {
+        String value = "s".repeat(length);
+        String encoded = base64 ? Base64.getEncoder().encodeToString(value.getBytes(StandardCharsets.UTF_8)) : value;
+        secret = new Secret("bytes".equals(type) ? encoded.getBytes(StandardCharsets.UTF_8) : encoded, base64);
+    }
+
+    @Benchmark
+    public String asString() {
+        return secret.asString();
+    }
+
+    @Benchmark
+    public byte[] asBytes() {
+        return secret.asBytes();
+    }
+}
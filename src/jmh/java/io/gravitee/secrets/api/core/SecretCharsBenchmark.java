@@ -0,0 +1,82 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.secrets.api.core;
+
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Password read as <code>char[]</code> (e.g. to load a keystore): String route vs direct char decoding.
+ *
+ * @author GraviteeSource Team
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SecretCharsBenchmark {
+
+    @Param({ "false", "true" })
+    public boolean base64;
+
+    @Param({ "String", "bytes" })
+    public String type;
+
+    private Secret secret;
+    private CharBuffer buffer;
+
+    @Setup
+    public void setup() {
+        byte[] password = "s3cr3t-p@ssw0rd-for-the-keystore!".getBytes(StandardCharsets.UTF_8);
+        byte[] bytes = base64 ? Base64.getEncoder().encode(password) : password;
+        secret = new Secret("String".equals(type) ? new String(bytes, StandardCharsets.UTF_8) : bytes, base64);
+        buffer = CharBuffer.allocate(secret.size());
+    }
+
+    @Benchmark
+    public char[] asStringToCharArray() {
+        return secret.asString().toCharArray();
+    }
+
+    @Benchmark
+    public char[] asChars() {
+        return secret.asChars();
+    }
+
+    @Benchmark
+    public CharBuffer decodeCharsIntoReusedBuffer() {
+        buffer.clear();
+        secret.decodeCharsInto(buffer);
+        Arrays.fill(buffer.array(), '\0');
+        return buffer;
+    }
+}
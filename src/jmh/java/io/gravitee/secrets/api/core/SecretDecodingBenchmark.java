@@ -0,0 +1,89 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.secrets.api.core;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Repeated reads of a base64 encoded PEM secret, as done by TLS and auth plugins, with and without memoized decoding.
+ *
+ * @author GraviteeSource Team
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SecretDecodingBenchmark {
+
+    /**
+     * PEM size in bytes: a single certificate and a chain
+     */
+    @Param({ "1800", "6000" })
+    public int pemSize;
+
+    private Secret secret;
+    private Secret memoized;
+
+    @Setup
+    public void setup() {
+        secret = new Secret(Base64.getEncoder().encodeToString(pem(pemSize).getBytes(StandardCharsets.UTF_8)), true);
+        memoized = secret.memoized();
+    }
+
+    @Benchmark
+    public byte[] asBytes() {
+        return secret.asBytes();
+    }
+
+    @Benchmark
+    public byte[] asBytesMemoized() {
+        return memoized.asBytes();
+    }
+
+    @Benchmark
+    public String asString() {
+        return secret.asString();
+    }
+
+    @Benchmark
+    public String asStringMemoized() {
+        return memoized.asString();
+    }
+
+    static String pem(int size) {
+        StringBuilder pem = new StringBuilder("-----BEGIN CERTIFICATE-----\n");
+        String line = "MIIDazCCAlOgAwIBAgIUJ3Lk0y7QK9gq8Hf0lV8c3N2m1wYwDQYJKoZIhvcNAQEL\n";
+        while (pem.length() < size - 26) {
+            pem.append(line);
+        }
+        return pem.append("-----END CERTIFICATE-----\n").toString();
+    }
+}
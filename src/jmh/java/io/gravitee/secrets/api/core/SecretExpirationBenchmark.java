@@ -0,0 +1,68 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.secrets.api.core;
+
+import io.gravitee.secrets.api.util.CoarseClock;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Expiration check of a secret on each read: system clock vs coarse clock.
+ *
+ * @author GraviteeSource Team
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SecretExpirationBenchmark {
+
+    private Secret secret;
+    private CoarseClock clock;
+
+    @Setup
+    public void setup() {
+        secret = new Secret("secret").withExpiresAt(Instant.now().plusSeconds(3600));
+        clock = CoarseClock.shared();
+    }
+
+    @Benchmark
+    public boolean isExpired() {
+        return secret.isExpired();
+    }
+
+    @Benchmark
+    public boolean isExpiredCoarseClock() {
+        return secret.isExpired(clock);
+    }
+
+    @Benchmark
+    public boolean isExpiredCoarseMillis() {
+        return secret.isExpired(clock.millis());
+    }
+}
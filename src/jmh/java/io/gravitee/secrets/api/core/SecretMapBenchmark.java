@@ -0,0 +1,92 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.secrets.api.core;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Creation of {@link SecretMap} from provider data and per-key expiration.
+ *
+ * @author GraviteeSource Team
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SecretMapBenchmark {
+
+    @Param({ "2", "64" })
+    public int size;
+
+    @Param({ "false", "true" })
+    public boolean base64;
+
+    private Map<String, String> data;
+    private SecretMap secretMap;
+    private SecretURL urlWithKey;
+    private SecretURL urlWithoutKey;
+    private Instant expiresAt;
+
+    @Setup
+    public void setup() {
+        data = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            String value = "secret-value-%d".formatted(i);
+            data.put("key-%d".formatted(i), base64 ? Base64.getEncoder().encodeToString(value.getBytes(StandardCharsets.UTF_8)) : value);
+        }
+        secretMap = create();
+        urlWithKey = SecretURL.from("secret://vault/secret/apim:key-0");
+        urlWithoutKey = SecretURL.from("secret://vault/secret/apim");
+        expiresAt = Instant.now().plusSeconds(3600);
+    }
+
+    @Benchmark
+    public SecretMap of() {
+        return create();
+    }
+
+    @Benchmark
+    public SecretMap withExpiresAtKey() {
+        return secretMap.withExpiresAt(urlWithKey, expiresAt);
+    }
+
+    @Benchmark
+    public SecretMap withExpiresAtMap() {
+        return secretMap.withExpiresAt(urlWithoutKey, expiresAt);
+    }
+
+    private SecretMap create() {
+        return base64 ? SecretMap.ofBase64(data) : SecretMap.of(data);
+    }
+}
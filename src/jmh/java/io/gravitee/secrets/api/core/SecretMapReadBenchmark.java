@@ -0,0 +1,89 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.secrets.api.core;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Reads of a {@link SecretMap} holding a TLS bundle: certificate, private key and a CA chain of <code>chain</code> entries.
+ *
+ * @author GraviteeSource Team
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SecretMapReadBenchmark {
+
+    @Param({ "0", "16", "128" })
+    public int chain;
+
+    private SecretMap secretMap;
+    private SecretURL url;
+
+    @Setup
+    public void setup() {
+        Map<String, String> data = new HashMap<>();
+        data.put("tls.crt", SecretDecodingBenchmark.pem(1800));
+        data.put("tls.key", SecretDecodingBenchmark.pem(1700));
+        for (int i = 0; i < chain; i++) {
+            data.put("ca-%d.crt".formatted(i), SecretDecodingBenchmark.pem(1800));
+        }
+        secretMap = SecretMap.of(data);
+        url = SecretURL.from("secret://kubernetes/tls-bundle:tls.key");
+    }
+
+    @Benchmark
+    public Secret get() {
+        return secretMap.get("tls.key");
+    }
+
+    @Benchmark
+    public Object getSecret() {
+        return secretMap.getSecret(url);
+    }
+
+    @Benchmark
+    public void asMapForEach(Blackhole blackhole) {
+        secretMap.asMap().forEach((key, secret) -> blackhole.consume(secret));
+    }
+
+    @Benchmark
+    public void forEach(Blackhole blackhole) {
+        secretMap.forEach((key, secret) -> blackhole.consume(secret));
+    }
+
+    @Benchmark
+    public SecretMap withExpiresAt() {
+        return secretMap.withExpiresAt(url, null);
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.secrets.api.core;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import javax.security.auth.DestroyFailedException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * GC impact of keeping 100k secrets cached on the heap or off-heap.
+ * <code>fullGc</code> measures a full collection pause, <code>churn</code> measures request-like allocations
+ * and is meant to be read with <code>-prof gc</code> (gc.time).
+ *
+ * @author GraviteeSource Team
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+@State(Scope.Benchmark)
+public class SecretOffHeapBenchmark {
+
+    @Param({ "100000" })
+    public int count;
+
+    @Param({ "false", "true" })
+    public boolean offHeap;
+
+    private Secret[] secrets;
+
+    @Setup
+    public void setup() {
+        String pem = Base64.getEncoder().encodeToString(SecretDecodingBenchmark.pem(1800).getBytes(StandardCharsets.UTF_8));
+        secrets = new Secret[count];
+        for (int i = 0; i < count; i++) {
+            // distinct instances, as if fetched from a provider
+            String data = new String(pem.toCharArray());
+            secrets[i] = offHeap ? Secret.offHeap(data, true, null) : new Secret(data, true).memoized();
+            secrets[i].asBytes();
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws DestroyFailedException {
+        for (Secret secret : secrets) {
+            if (secret.isOffHeap()) {
+                secret.destroy();
+            }
+        }
+    }
+
+    @Benchmark
+    public void fullGc() {
+        System.gc();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void churn(Blackhole blackhole) {
+        for (int i = 0; i < 64; i++) {
+            blackhole.consume(new byte[16 * 1024]);
+        }
+        blackhole.consume(secrets[ThreadLocalRandom.current().nextInt(count)].asByteBuffer());
+    }
+}
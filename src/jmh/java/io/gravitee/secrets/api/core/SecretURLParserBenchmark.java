@@ -0,0 +1,143 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.secrets.api.core;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.MultimapBuilder;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares {@link SecretURL#from(String, boolean)} with the former Splitter/substring based parser.
+ *
+ * @author GraviteeSource Team
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SecretURLParserBenchmark {
+
+    @Param(
+        {
+            "secret://vault/secret/apim/backend",
+            "secret://vault/secret/apim/backend:password",
+            "secret://kubernetes/tls-secret?namespace=gravitee&keymap=certificate:tls.crt&keymap=private_key:tls.key&watch",
+        }
+    )
+    public String url;
+
+    @Benchmark
+    public SecretURL singlePass() {
+        return SecretURL.from(url, false);
+    }
+
+    @Benchmark
+    public LegacySecretURL legacy() {
+        return LegacyParser.from(url, false);
+    }
+
+    /**
+     * Former representation of a parsed URL: the query is held in a Guava {@link MultimapBuilder} multimap.
+     */
+    public record LegacySecretURL(String provider, String path, String key, Multimap<String, String> query, boolean isURI) {}
+
+    /**
+     * Copy of the parser as it was before the single pass implementation, kept as a reference.
+     */
+    static final class LegacyParser {
+
+        private static final Splitter urlPathSplitter = Splitter.on(SecretURL.URL_SEPARATOR);
+        private static final Splitter queryParamSplitter = Splitter.on('&');
+        private static final Splitter queryParamKeyValueSplitter = Splitter.on('=');
+
+        static LegacySecretURL from(String url, boolean isURI) {
+            url = Objects.requireNonNull(url).trim();
+            if (!isURI && !url.startsWith(SecretURL.SCHEME)) {
+                throw new IllegalArgumentException(url);
+            }
+            String schemeLess = isURI ? url.substring(1) : url.substring(SecretURL.SCHEME.length());
+            int firstSlash = schemeLess.indexOf('/');
+            if (firstSlash < 0 || firstSlash == schemeLess.length() - 1) {
+                throw new IllegalArgumentException(url);
+            }
+
+            String provider = schemeLess.substring(0, firstSlash).trim();
+            int questionMarkPos = schemeLess.indexOf('?');
+            if (questionMarkPos == firstSlash + 1) {
+                throw new IllegalArgumentException(url);
+            }
+
+            String path;
+            final String key;
+            final Multimap<String, String> query;
+
+            if (questionMarkPos > 0) {
+                path = schemeLess.substring(provider.length() + 1, questionMarkPos).trim();
+                query = parseQuery(schemeLess.substring(questionMarkPos + 1));
+            } else {
+                path = schemeLess.substring(provider.length() + 1).trim();
+                query = MultimapBuilder.hashKeys().arrayListValues().build();
+            }
+
+            int columnIndex = path.lastIndexOf(':');
+            if (columnIndex > path.lastIndexOf(SecretURL.URL_SEPARATOR)) {
+                key = path.substring(columnIndex + 1);
+                path = path.substring(0, columnIndex);
+            } else {
+                key = null;
+            }
+
+            while (!path.isEmpty() && path.charAt(path.length() - 1) == SecretURL.URL_SEPARATOR) {
+                path = path.substring(0, path.length() - 1);
+            }
+
+            if (path.isBlank() || urlPathSplitter.splitToList(path).stream().anyMatch(String::isBlank)) {
+                throw new IllegalArgumentException(url);
+            }
+
+            return new LegacySecretURL(provider, path, key, query, isURI);
+        }
+
+        private static Multimap<String, String> parseQuery(String substring) {
+            Multimap<String, String> query = MultimapBuilder.hashKeys().arrayListValues().build();
+            queryParamSplitter
+                .split(substring)
+                .forEach(pair -> {
+                    Iterator<String> iterator = queryParamKeyValueSplitter.split(pair).iterator();
+                    if (iterator.hasNext()) {
+                        String key = iterator.next();
+                        query.put(key, iterator.hasNext() ? iterator.next() : "true");
+                    }
+                });
+            return query;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.secrets.api.scheduling;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Scheduling with 100k pending refreshes: timing wheel vs priority queue.
+ *
+ * @author GraviteeSource Team
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TimingWheelBenchmark {
+
+    private static final int SIZE = 100_000;
+    private static final long TICK = 10;
+    private static final long HORIZON = Duration.ofHours(1).toMillis();
+
+    private TimingWheel<Long> wheel;
+    private PriorityQueue<Long> queue;
+    private long now;
+
+    @Setup
+    public void setup() {
+        wheel = new TimingWheel<>(Duration.ofMillis(TICK), 0);
+        queue = new PriorityQueue<>(SIZE);
+        for (int i = 0; i < SIZE; i++) {
+            long deadline = ThreadLocalRandom.current().nextLong(HORIZON);
+            wheel.schedule(deadline, deadline);
+            queue.add(deadline);
+        }
+    }
+
+    @Benchmark
+    public boolean wheelScheduleCancel() {
+        long deadline = now + ThreadLocalRandom.current().nextLong(HORIZON);
+        return wheel.schedule(deadline, deadline).cancel();
+    }
+
+    @Benchmark
+    public boolean queueScheduleCancel() {
+        Long deadline = now + ThreadLocalRandom.current().nextLong(HORIZON);
+        queue.add(deadline);
+        return queue.remove(deadline);
+    }
+
+    @Benchmark
+    public int wheelAdvance() {
+        now += TICK;
+        List<Long> due = wheel.advance(now);
+        for (Long deadline : due) {
+            wheel.schedule(deadline + HORIZON, deadline + HORIZON);
+        }
+        return due.size();
+    }
+}
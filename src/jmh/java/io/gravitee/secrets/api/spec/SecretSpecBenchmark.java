@@ -0,0 +1,102 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.secrets.api.spec;
+
+import io.gravitee.secrets.api.core.SecretURL;
+import io.gravitee.secrets.api.core.SecretURLCache;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Conversion of a {@link SecretSpec} to a {@link SecretURL} and ACLs shortcuts.
+ *
+ * @author GraviteeSource Team
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SecretSpecBenchmark {
+
+    /**
+     * with params, the URI gets a query string
+     */
+    @Param({ "false", "true" })
+    public boolean withParams;
+
+    /**
+     * number of plugin ACLs, each having 4 fields
+     */
+    @Param({ "1", "16" })
+    public int plugins;
+
+    private SecretSpec spec;
+    private SecretURLCache cache;
+
+    @Setup
+    public void setup() {
+        cache = new SecretURLCache();
+        List<ACLs.PluginACL> pluginACLs = new ArrayList<>();
+        for (int i = 0; i < plugins; i++) {
+            pluginACLs.add(new ACLs.PluginACL("plugin-%d".formatted(i), List.of("Username", "Password", "Token", "Certificate")));
+        }
+        spec =
+            new SecretSpec(
+                null,
+                null,
+                "/vault/secret/apim/backend",
+                "password",
+                false,
+                true,
+                new Resolution(Resolution.Type.ONCE, null),
+                null,
+                new ACLs(null, null, pluginACLs),
+                "DEFAULT",
+                withParams,
+                withParams
+            );
+    }
+
+    @Benchmark
+    public SecretURL toSecretURL() {
+        return spec.toSecretURL();
+    }
+
+    @Benchmark
+    public SecretURL toSecretURLCached() {
+        return spec.toSecretURL(cache);
+    }
+
+    @Benchmark
+    public Set<String> allowedFields() {
+        return spec.allowedFields();
+    }
+}
@@ -15,16 +15,33 @@
  */
 package io.gravitee.secrets.api.core;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
+import java.time.Clock;
 import java.time.Instant;
+import java.util.Arrays;
 import java.util.Base64;
 import java.util.Optional;
+import javax.security.auth.DestroyFailedException;
+import javax.security.auth.Destroyable;
 import lombok.EqualsAndHashCode;
 import lombok.experimental.Accessors;
 
 /**
  * This represents a single secret value.
  * It can be constructed from a byte array or from a String. By default, data is NOT considered base64 encoded.
+ * Base64 data is decoded on each read unless {@link #memoized()} is used to decode it once.
+ * <p>
+ * Secrets created with {@link #offHeap(Object, boolean, Instant)} keep their decoded value in native memory,
+ * out of the GC scanned heap, and can be wiped using {@link #destroy()}.
  *
  * @author Benoit BORDIGONI (benoit.bordigoni at graviteesource.com)
  * @author GraviteeSource Team
@@ -32,12 +49,24 @@ import lombok.experimental.Accessors;
 
 @Accessors(fluent = true)
 @EqualsAndHashCode
-public final class Secret implements WithExpiration {
+public final class Secret implements WithExpiration, Destroyable {
 
     private final Object data;
     private final boolean base64Encoded;
     private final Instant expiresAt;
 
+    @EqualsAndHashCode.Exclude
+    private final long expiresAtMillis;
+
+    @EqualsAndHashCode.Exclude
+    private final boolean memoizeDecoding;
+
+    @EqualsAndHashCode.Exclude
+    private volatile byte[] decodedBytes;
+
+    @EqualsAndHashCode.Exclude
+    private volatile String decodedString;
+
     /**
      * Create an empty secret (empty string) for ser/der frameworks
      */
@@ -75,12 +104,76 @@ public final class Secret implements WithExpiration {
      * @throws IllegalArgumentException if <code>data</code> is not byte array or String or is null
      */
     public Secret(Object data, boolean base64Encoded, Instant expiresAt) {
-        if (!(data instanceof String) && !(data instanceof byte[])) {
+        this(data, base64Encoded, expiresAt, false);
+    }
+
+    private Secret(Object data, boolean base64Encoded, Instant expiresAt, boolean memoizeDecoding) {
+        if (!(data instanceof String) && !(data instanceof byte[]) && !(data instanceof OffHeapData)) {
             throw new IllegalArgumentException("secret can only be of type String or byte[] and must not be null");
         }
         this.data = data;
         this.base64Encoded = base64Encoded;
         this.expiresAt = expiresAt;
+        this.expiresAtMillis = expiresAt == null ? Long.MAX_VALUE : WithExpiration.toEpochMillis(expiresAt);
+        this.memoizeDecoding = memoizeDecoding && base64Encoded;
+    }
+
+    /**
+     * Builds a secret which decoded value is copied into native memory (direct buffer).
+     * Such secret is not equal to a heap secret with the same value.
+     *
+     * @param data          a byte array or a String
+     * @param base64Encoded to declare data as base64 encoded, it is decoded once before being copied
+     * @param expiresAt     the secret expires, can be null
+     * @return an off-heap secret
+     * @throws IllegalArgumentException if <code>data</code> is not byte array or String or is null, or is invalid base64
+     */
+    public static Secret offHeap(Object data, boolean base64Encoded, Instant expiresAt) {
+        Secret heap = new Secret(data, base64Encoded);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(heap.size());
+        heap.decodeInto(buffer);
+        return new Secret(new OffHeapData(buffer.flip()), false, expiresAt, false);
+    }
+
+    /**
+     * @return true if this secret value is stored in native memory
+     */
+    public boolean isOffHeap() {
+        return data instanceof OffHeapData;
+    }
+
+    /**
+     * Zeroes the native memory holding an off-heap secret and drops it so it is released by the garbage collector.
+     * Secrets derived using {@link #withExpiresAt(Instant)} share the same memory and are destroyed as well.
+     * Reading a destroyed secret throws {@link IllegalStateException}.
+     *
+     * @throws DestroyFailedException if the secret is not off-heap
+     */
+    @Override
+    public void destroy() throws DestroyFailedException {
+        if (data instanceof OffHeapData offHeap) {
+            offHeap.destroy();
+        } else {
+            throw new DestroyFailedException("only off-heap secrets can be destroyed");
+        }
+    }
+
+    @Override
+    public boolean isDestroyed() {
+        return data instanceof OffHeapData offHeap && offHeap.isDestroyed();
+    }
+
+    /**
+     * Create a secret with the same data that decodes base64 data only once, on first read, then reuses the decoded value.
+     * This is relevant for secrets that are read repeatedly (e.g. certificates, keys). It has no effect if data is not base64 encoded.
+     *
+     * @return an equal secret memoizing decoded data
+     */
+    public Secret memoized() {
+        if (!base64Encoded || memoizeDecoding) {
+            return this;
+        }
+        return new Secret(data, true, expiresAt, true);
     }
 
     /**
@@ -94,6 +187,8 @@ public final class Secret implements WithExpiration {
             result = str.isEmpty();
         } else if (data instanceof byte[] buf) {
             result = buf.length == 0;
+        } else if (data instanceof OffHeapData offHeap) {
+            result = offHeap.size == 0;
         }
         return result;
     }
@@ -102,10 +197,18 @@ public final class Secret implements WithExpiration {
      * If {@link Secret} is a String, convert to byte array assuming String is UTF-8.
      * If {@link Secret} is declared to contains base64 data, it will be decoded.
      *
+     * When decoding is memoized, the same array is returned on each call, it must not be modified.
+     *
      * @return secret value as bytes
      * @see Base64.Decoder#decode(byte[])
      */
     public byte[] asBytes() {
+        if (memoizeDecoding) {
+            return memoizedBytes();
+        }
+        if (data instanceof OffHeapData offHeap) {
+            return offHeap.copy();
+        }
         byte[] result = new byte[0];
         if (data instanceof String str) {
             result = base64Encoded ? Base64.getDecoder().decode(str) : str.getBytes(StandardCharsets.UTF_8);
@@ -116,6 +219,155 @@ public final class Secret implements WithExpiration {
         return result;
     }
 
+    /**
+     * Number of bytes of the secret value as returned by {@link #asBytes()}, computed without decoding.
+     *
+     * @return the secret value size in bytes
+     * @throws IllegalArgumentException if base64 data has invalid padding
+     */
+    public int size() {
+        if (memoizeDecoding && decodedBytes != null) {
+            return decodedBytes.length;
+        }
+        if (data instanceof OffHeapData offHeap) {
+            return offHeap.size;
+        }
+        if (base64Encoded) {
+            return SecretCodec.base64DecodedLength(data);
+        }
+        return data instanceof String str ? SecretCodec.utf8Length(str) : ((byte[]) data).length;
+    }
+
+    /**
+     * Read-only view of the secret value as returned by {@link #asBytes()}.
+     * Raw byte arrays, memoized decoded data and off-heap memory are wrapped without copy, otherwise the value is decoded into a new buffer.
+     *
+     * @return a read-only buffer positioned at 0
+     */
+    public ByteBuffer asByteBuffer() {
+        if (data instanceof OffHeapData offHeap) {
+            return offHeap.view();
+        }
+        return ByteBuffer.wrap(asBytes()).asReadOnlyBuffer();
+    }
+
+    /**
+     * Write the secret value as returned by {@link #asBytes()} into a buffer, starting at its position.
+     * Base64 data is decoded straight into the buffer and Strings are encoded in UTF-8 straight into the buffer.
+     * On success the position of the buffer is moved after the written bytes, on failure it is left unchanged.
+     *
+     * @param dst the buffer to write into, can be direct
+     * @return the number of bytes written
+     * @throws BufferOverflowException if the buffer remaining space is lower than {@link #size()}
+     * @throws IllegalArgumentException if base64 data is invalid
+     */
+    public int decodeInto(ByteBuffer dst) {
+        if (memoizeDecoding && decodedBytes != null) {
+            return put(decodedBytes, dst);
+        }
+        if (data instanceof OffHeapData offHeap) {
+            dst.put(offHeap.view());
+            return offHeap.size;
+        }
+        if (base64Encoded) {
+            return SecretCodec.base64Decode(data, dst);
+        }
+        if (data instanceof byte[] buf) {
+            return put(buf, dst);
+        }
+        String str = (String) data;
+        int size = SecretCodec.utf8Length(str);
+        if (dst.remaining() < size) {
+            throw new BufferOverflowException();
+        }
+        CharsetEncoder encoder = StandardCharsets.UTF_8
+            .newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        CoderResult result = encoder.encode(CharBuffer.wrap(str), dst, true);
+        if (result.isUnderflow()) {
+            result = encoder.flush(dst);
+        }
+        if (!result.isUnderflow()) {
+            throw new BufferOverflowException();
+        }
+        return size;
+    }
+
+    /**
+     * Secret value as chars, for APIs expecting passwords as <code>char[]</code> (e.g. {@link java.security.KeyStore#load(java.io.InputStream, char[])}).
+     * Bytes are decoded as UTF-8 without creating any String, intermediate buffers are zeroed.
+     * The returned array belongs to the caller, it can be wiped after use.
+     *
+     * @return secret value as chars
+     * @throws IllegalArgumentException if base64 data is invalid
+     */
+    public char[] asChars() {
+        char[] chars = new char[!base64Encoded && data instanceof String str ? str.length() : size()];
+        int length = decodeCharsInto(CharBuffer.wrap(chars));
+        if (length == chars.length) {
+            return chars;
+        }
+        char[] result = Arrays.copyOf(chars, length);
+        Arrays.fill(chars, '\0');
+        return result;
+    }
+
+    /**
+     * Write the secret value as returned by {@link #asChars()} into a buffer, starting at its position.
+     * On success the position of the buffer is moved after the written chars, on failure it is left unchanged.
+     *
+     * @param dst the buffer to write into
+     * @return the number of chars written
+     * @throws BufferOverflowException if the buffer has not enough remaining space, {@link #size()} chars are always enough
+     * @throws IllegalArgumentException if base64 data is invalid
+     */
+    public int decodeCharsInto(CharBuffer dst) {
+        if (!base64Encoded && data instanceof String str) {
+            if (dst.remaining() < str.length()) {
+                throw new BufferOverflowException();
+            }
+            dst.put(str);
+            return str.length();
+        }
+        if (data instanceof OffHeapData offHeap) {
+            return SecretCodec.utf8Decode(offHeap.view(), dst);
+        }
+        if (memoizeDecoding || !base64Encoded) {
+            // memoized or raw bytes, no copy
+            return SecretCodec.utf8Decode(ByteBuffer.wrap(asBytes()), dst);
+        }
+        byte[] bytes = asBytes();
+        try {
+            return SecretCodec.utf8Decode(ByteBuffer.wrap(bytes), dst);
+        } finally {
+            Arrays.fill(bytes, (byte) 0);
+        }
+    }
+
+    /**
+     * Write the secret value as returned by {@link #asBytes()} to a channel.
+     *
+     * @param channel where to write the secret
+     * @throws IOException if the channel fails
+     */
+    public void writeTo(WritableByteChannel channel) throws IOException {
+        ByteBuffer buffer = asByteBuffer();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Write the secret value as returned by {@link #asBytes()} to a stream. Raw byte arrays are written without copy.
+     *
+     * @param out where to write the secret
+     * @throws IOException if the stream fails
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(asBytes());
+    }
+
     /**
      * @return optional of the expiration of this secret
      */
@@ -123,6 +375,16 @@ public final class Secret implements WithExpiration {
         return Optional.ofNullable(expiresAt);
     }
 
+    @Override
+    public long expiresAtMillis() {
+        return expiresAtMillis;
+    }
+
+    @Override
+    public boolean isExpired(Clock clock) {
+        return expiresAt != null && clock.instant().isAfter(expiresAt);
+    }
+
     /**
      * If {@link Secret} is a byte array, convert to String assuming bytes are UTF-8.
      * If {@link Secret} is declared to contains base64 data, it will be decoded.
@@ -131,12 +393,20 @@ public final class Secret implements WithExpiration {
      * @see Base64.Decoder#decode(byte[])
      */
     public String asString() {
+        if (memoizeDecoding) {
+            return memoizedString();
+        }
         String result = "";
         if (data instanceof String str) {
-            result = base64Encoded ? new String(Base64.getDecoder().decode(str)) : str;
+            result = base64Encoded ? new String(Base64.getDecoder().decode(str), StandardCharsets.UTF_8) : str;
         }
         if (data instanceof byte[] buf) {
-            result = base64Encoded ? new String(Base64.getDecoder().decode(buf)) : new String(buf, StandardCharsets.UTF_8);
+            result = new String(base64Encoded ? Base64.getDecoder().decode(buf) : buf, StandardCharsets.UTF_8);
+        }
+        if (data instanceof OffHeapData offHeap) {
+            byte[] bytes = offHeap.copy();
+            result = new String(bytes, StandardCharsets.UTF_8);
+            Arrays.fill(bytes, (byte) 0);
         }
         return result;
     }
@@ -147,6 +417,92 @@ public final class Secret implements WithExpiration {
      * @return cloned expiring secret with data
      */
     public Secret withExpiresAt(Instant expiresAt) {
-        return new Secret(this.data, this.base64Encoded, expiresAt);
+        return new Secret(this.data, this.base64Encoded, expiresAt, this.memoizeDecoding);
+    }
+
+    private static int put(byte[] bytes, ByteBuffer dst) {
+        dst.put(bytes);
+        return bytes.length;
+    }
+
+    // racy single-check: decoding is idempotent, at worst it happens once per thread racing the first read
+    private byte[] memoizedBytes() {
+        byte[] result = decodedBytes;
+        if (result == null) {
+            result = data instanceof String str ? Base64.getDecoder().decode(str) : Base64.getDecoder().decode((byte[]) data);
+            decodedBytes = result;
+        }
+        return result;
+    }
+
+    private String memoizedString() {
+        String result = decodedString;
+        if (result == null) {
+            result = new String(memoizedBytes(), StandardCharsets.UTF_8);
+            decodedString = result;
+        }
+        return result;
+    }
+
+    /**
+     * Holds the decoded value of an off-heap secret in a direct buffer. Equality is based on content until destroyed.
+     */
+    private static final class OffHeapData {
+
+        private final int size;
+        private final int hash;
+        private volatile ByteBuffer buffer;
+
+        private OffHeapData(ByteBuffer buffer) {
+            this.buffer = buffer;
+            this.size = buffer.remaining();
+            this.hash = buffer.hashCode();
+        }
+
+        private ByteBuffer view() {
+            ByteBuffer current = buffer;
+            if (current == null) {
+                throw new IllegalStateException("secret has been destroyed");
+            }
+            return current.asReadOnlyBuffer();
+        }
+
+        private byte[] copy() {
+            byte[] bytes = new byte[size];
+            view().get(bytes);
+            return bytes;
+        }
+
+        private boolean isDestroyed() {
+            return buffer == null;
+        }
+
+        private synchronized void destroy() {
+            ByteBuffer current = buffer;
+            if (current != null) {
+                buffer = null;
+                for (int i = 0; i < current.capacity(); i++) {
+                    current.put(i, (byte) 0);
+                }
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof OffHeapData other) || hash != other.hash) {
+                return false;
+            }
+            ByteBuffer current = buffer;
+            ByteBuffer otherBuffer = other.buffer;
+            return current != null && otherBuffer != null && current.equals(otherBuffer);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
     }
 }
@@ -0,0 +1,186 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.secrets.api.core;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+/**
+ * Decoding helpers working on the raw data of a {@link Secret} (String or byte[]) without intermediate copies.
+ * Base64 decoding follows the rules of {@link java.util.Base64#getDecoder()}.
+ *
+ * @author GraviteeSource Team
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+final class SecretCodec {
+
+    private static final byte[] BASE64 = new byte[128];
+
+    static {
+        Arrays.fill(BASE64, (byte) -1);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+        for (int i = 0; i < alphabet.length(); i++) {
+            BASE64[alphabet.charAt(i)] = (byte) i;
+        }
+    }
+
+    /**
+     * Compute the number of bytes of base64 data once decoded, without decoding it
+     *
+     * @param src String or byte[] base64 data
+     * @return the decoded length
+     * @throws IllegalArgumentException if padding is not valid
+     */
+    static int base64DecodedLength(Object src) {
+        int length = length(src);
+        if (length == 0) {
+            return 0;
+        }
+        int padding = padding(src, length);
+        int significant = length - padding;
+        if (significant % 4 == 1) {
+            throw new IllegalArgumentException("Last unit does not have enough valid bits");
+        }
+        if (padding > 0 && length % 4 != 0) {
+            throw new IllegalArgumentException("Input byte array has wrong 4-byte ending unit");
+        }
+        return significant / 4 * 3 + (significant % 4 == 0 ? 0 : significant % 4 - 1);
+    }
+
+    /**
+     * Decode base64 data into a buffer starting at its position. On success, the position is moved after the decoded bytes.
+     * On failure the position of the buffer is left unchanged.
+     *
+     * @param src String or byte[] base64 data
+     * @param dst the buffer to write into
+     * @return number of decoded bytes
+     * @throws IllegalArgumentException if data is not valid base64
+     * @throws BufferOverflowException if the buffer has not enough remaining space
+     */
+    static int base64Decode(Object src, ByteBuffer dst) {
+        int decodedLength = base64DecodedLength(src);
+        if (dst.remaining() < decodedLength) {
+            throw new BufferOverflowException();
+        }
+        int position = dst.position();
+        int length = length(src);
+        length -= padding(src, length);
+        try {
+            int bits = 0;
+            int count = 0;
+            for (int i = 0; i < length; i++) {
+                int c = at(src, i);
+                int value = c < BASE64.length ? BASE64[c] : -1;
+                if (value < 0) {
+                    throw new IllegalArgumentException("Illegal base64 character " + Integer.toString(c, 16));
+                }
+                bits = bits << 6 | value;
+                if (++count == 4) {
+                    dst.put((byte) (bits >> 16)).put((byte) (bits >> 8)).put((byte) bits);
+                    bits = 0;
+                    count = 0;
+                }
+            }
+            if (count == 2) {
+                dst.put((byte) (bits >> 4));
+            } else if (count == 3) {
+                dst.put((byte) (bits >> 10)).put((byte) (bits >> 2));
+            }
+        } catch (IllegalArgumentException e) {
+            dst.position(position);
+            throw e;
+        }
+        return decodedLength;
+    }
+
+    /**
+     * @param str a string
+     * @return the number of bytes of the string encoded in UTF-8, malformed surrogates count as one replacement byte
+     */
+    static int utf8Length(String str) {
+        int length = 0;
+        for (int i = 0; i < str.length(); i++) {
+            char c = str.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < str.length() && Character.isLowSurrogate(str.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                length++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Decode UTF-8 bytes into a char buffer starting at its position, malformed input is replaced like {@link String#String(byte[], java.nio.charset.Charset)} does.
+     * On success, the position is moved after the decoded chars. On failure the position of the buffer is left unchanged.
+     * The decoded chars never outnumber the source bytes.
+     *
+     * @param src UTF-8 bytes, its position is moved to its limit
+     * @param dst the buffer to write into
+     * @return number of decoded chars
+     * @throws BufferOverflowException if the buffer has not enough remaining space
+     */
+    static int utf8Decode(ByteBuffer src, CharBuffer dst) {
+        int position = dst.position();
+        CharsetDecoder decoder = StandardCharsets.UTF_8
+            .newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        CoderResult result = decoder.decode(src, dst, true);
+        if (result.isUnderflow()) {
+            result = decoder.flush(dst);
+        }
+        if (!result.isUnderflow()) {
+            for (int i = position; i < dst.position(); i++) {
+                dst.put(i, '\0');
+            }
+            dst.position(position);
+            throw new BufferOverflowException();
+        }
+        return dst.position() - position;
+    }
+
+    private static int padding(Object src, int length) {
+        int padding = 0;
+        while (padding < 2 && padding < length && at(src, length - 1 - padding) == '=') {
+            padding++;
+        }
+        return padding;
+    }
+
+    private static int length(Object src) {
+        return src instanceof String str ? str.length() : ((byte[]) src).length;
+    }
+
+    private static int at(Object src, int index) {
+        return src instanceof String str ? str.charAt(index) : ((byte[]) src)[index] & 0xff;
+    }
+}
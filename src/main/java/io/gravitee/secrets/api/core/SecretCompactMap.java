@@ -0,0 +1,169 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.secrets.api.core;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Immutable map of secrets for small sizes, the most common case (username/password, certificate/private key...).
+ * <p>
+ * Entries are stored in a single flat array alternating keys and secrets, lookups are linear scans.
+ * This is lighter than the hash table of {@link Map#copyOf(Map)} up to {@link #MAX_SIZE} entries
+ * and as fast given the number of comparisons.
+ * </p>
+ *
+ * @author GraviteeSource Team
+ */
+final class SecretCompactMap extends AbstractMap<String, Secret> {
+
+    static final int MAX_SIZE = 8;
+
+    /**
+     * key0, secret0, key1, secret1...
+     */
+    private final Object[] entries;
+
+    private SecretCompactMap(Object[] entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * Create an immutable map from keys and secrets, the smallest implementation is chosen depending on the size.
+     *
+     * @param keys    keys, must be unique
+     * @param secrets secrets in the same order as keys
+     * @param size    number of used slots in both arrays
+     * @return an immutable map
+     * @throws NullPointerException if a key or a secret is null
+     */
+    static Map<String, Secret> of(String[] keys, Secret[] secrets, int size) {
+        if (size == 0) {
+            return Map.of();
+        }
+        if (size == 1) {
+            return Map.of(keys[0], secrets[0]);
+        }
+        if (size <= MAX_SIZE) {
+            Object[] entries = new Object[size * 2];
+            for (int i = 0; i < size; i++) {
+                entries[i * 2] = Objects.requireNonNull(keys[i]);
+                entries[i * 2 + 1] = Objects.requireNonNull(secrets[i]);
+            }
+            return new SecretCompactMap(entries);
+        }
+        // generic arrays cannot be created, it only holds entries of secrets
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        Map.Entry<String, Secret>[] mapEntries = new Map.Entry[size];
+        for (int i = 0; i < size; i++) {
+            mapEntries[i] = Map.entry(keys[i], secrets[i]);
+        }
+        return Map.ofEntries(mapEntries);
+    }
+
+    /**
+     * @param map the map to copy
+     * @return the same instance if it is already immutable or an immutable copy
+     * @throws NullPointerException if a key or a secret is null
+     */
+    static Map<String, Secret> copyOf(Map<String, Secret> map) {
+        if (map instanceof SecretCompactMap || map instanceof SecretOverlayMap) {
+            return map;
+        }
+        int size = map.size();
+        if (size <= 1 || size > MAX_SIZE) {
+            return Map.copyOf(map);
+        }
+        String[] keys = new String[size];
+        Secret[] secrets = new Secret[size];
+        int i = 0;
+        for (Map.Entry<String, Secret> entry : map.entrySet()) {
+            keys[i] = entry.getKey();
+            secrets[i++] = entry.getValue();
+        }
+        return of(keys, secrets, size);
+    }
+
+    @Override
+    public Secret get(Object key) {
+        for (int i = 0; i < entries.length; i += 2) {
+            if (entries[i].equals(key)) {
+                return (Secret) entries[i + 1];
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        for (int i = 0; i < entries.length; i += 2) {
+            if (entries[i].equals(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public int size() {
+        return entries.length / 2;
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super String, ? super Secret> action) {
+        for (int i = 0; i < entries.length; i += 2) {
+            action.accept((String) entries[i], (Secret) entries[i + 1]);
+        }
+    }
+
+    @Override
+    public Set<Entry<String, Secret>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<String, Secret>> iterator() {
+                return new Iterator<>() {
+                    private int index;
+
+                    @Override
+                    public boolean hasNext() {
+                        return index < entries.length;
+                    }
+
+                    @Override
+                    public Entry<String, Secret> next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        Entry<String, Secret> entry = Map.entry((String) entries[index], (Secret) entries[index + 1]);
+                        index += 2;
+                        return entry;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return entries.length / 2;
+            }
+        };
+    }
+}
@@ -15,13 +15,14 @@
  */
 package io.gravitee.secrets.api.core;
 
-import static java.util.stream.Collectors.toMap;
-
+import java.time.Clock;
 import java.time.Instant;
-import java.util.EnumMap;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import javax.security.auth.DestroyFailedException;
+import javax.security.auth.Destroyable;
 import lombok.EqualsAndHashCode;
 
 /**
@@ -29,18 +30,39 @@ import lombok.EqualsAndHashCode;
  * It can have an expiration to help cache eviction.
  * <p>
  * Secrets can be pulled directly or using {@link WellKnownSecretKey} for well known secrets type (TLS and Basic Auth).
- * An explicit call to {@link #handleWellKnownSecretKeys(Map)} with a mapping must be performed to extract well-known keys.
+ * An explicit call to {@link #handleWellKnownSecretKeys(Map)} with a mapping must be performed to extract well-known keys,
+ * or the mapping can be given to {@link #builder()} to index them at construction.
+ * <p>
+ * Instances are safe to share between threads: the map and the well-known index are immutable,
+ * the index is replaced as a whole when updated. Small maps are stored in a compact array-backed form.
+ * <p>
+ * When secrets are stored off-heap (see {@link #ofOffHeap(Map, boolean, Instant)}) {@link #destroy()} must be called
+ * once the map is not used anymore (e.g. evicted from a cache) to wipe them.
  *
  * @author Benoit BORDIGONI (benoit.bordigoni at graviteesource.com)
  * @author GraviteeSource Team
  */
 @EqualsAndHashCode
-public final class SecretMap implements WithExpiration {
+public final class SecretMap implements WithExpiration, Destroyable {
+
+    private static final int WELL_KNOWN_KEYS = WellKnownSecretKey.values().length;
+    private static final Secret[] NO_WELL_KNOWN = new Secret[WELL_KNOWN_KEYS];
 
     private final Map<String, Secret> map;
-    private final Map<WellKnownSecretKey, Secret> wellKnown = new EnumMap<>(WellKnownSecretKey.class);
     private final Instant expiresAt;
 
+    @EqualsAndHashCode.Exclude
+    private final long expiresAtMillis;
+    // indexed by ordinal, never modified once published
+    private volatile Secret[] wellKnown;
+
+    @EqualsAndHashCode.Exclude
+    private volatile boolean destroyed;
+
+    // null until computed
+    @EqualsAndHashCode.Exclude
+    private volatile Optional<Instant> nextExpiry;
+
     /**
      * Create a {@link SecretMap} from a map of {@link Secret} without expiration
      *
@@ -53,20 +75,65 @@ public final class SecretMap implements WithExpiration {
     /**
      * Create a {@link SecretMap} from a map of {@link Secret} with expiration
      *
-     * @param map      the map of {@link Secret}
+     * @param map      the map of {@link Secret}, copied unless already immutable
      * @param expiresAt expiration
      */
     public SecretMap(Map<String, Secret> map, Instant expiresAt) {
-        this.map = map == null ? Map.of() : Map.copyOf(map);
+        this(map == null ? Map.of() : SecretCompactMap.copyOf(map), NO_WELL_KNOWN, expiresAt);
+    }
+
+    private SecretMap(Map<String, Secret> map, Secret[] wellKnown, Instant expiresAt) {
+        this.map = map;
+        this.wellKnown = wellKnown;
         this.expiresAt = expiresAt;
+        this.expiresAtMillis = expiresAt == null ? Long.MAX_VALUE : WithExpiration.toEpochMillis(expiresAt);
     }
 
     /**
-     *
-     * @return a copy of the secrets as immutable map
+     * @return a builder creating a {@link SecretMap} from raw provider data
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return the secrets as immutable map, it is not a copy
      */
     public Map<String, Secret> asMap() {
-        return Map.copyOf(map);
+        return map;
+    }
+
+    /**
+     * Get a secret by its key
+     *
+     * @param key the key of the secret in the map
+     * @return the secret or <code>null</code> if absent
+     */
+    public Secret get(String key) {
+        return map.get(key);
+    }
+
+    /**
+     * Iterate over all secrets without copying them
+     *
+     * @param action called for each key and secret
+     */
+    public void forEach(BiConsumer<? super String, ? super Secret> action) {
+        map.forEach(action);
+    }
+
+    /**
+     * @return immutable set of all keys of this map
+     */
+    public Set<String> keys() {
+        return map.keySet();
+    }
+
+    /**
+     * @return number of secrets in this map
+     */
+    public int size() {
+        return map.size();
     }
 
     /**
@@ -77,7 +144,7 @@ public final class SecretMap implements WithExpiration {
      * @see Secret#Secret(Object)
      */
     public static SecretMap ofBase64(Map<String, ?> data) {
-        return new SecretMap(mapToMap(data, true));
+        return builder().data(data).base64(true).build();
     }
 
     /**
@@ -89,7 +156,7 @@ public final class SecretMap implements WithExpiration {
      * @see Secret#Secret(Object)
      */
     public static SecretMap ofBase64(Map<String, ?> data, Instant expireAt) {
-        return new SecretMap(mapToMap(data, true), expireAt);
+        return builder().data(data).base64(true).expiresAt(expireAt).build();
     }
 
     /**
@@ -100,7 +167,7 @@ public final class SecretMap implements WithExpiration {
      * @see Secret#Secret(Object)
      */
     public static SecretMap of(Map<String, ?> data) {
-        return new SecretMap(mapToMap(data, false));
+        return builder().data(data).build();
     }
 
     /**
@@ -112,11 +179,20 @@ public final class SecretMap implements WithExpiration {
      * @see Secret#Secret(Object)
      */
     public static SecretMap of(Map<String, ?> data, Instant expireAt) {
-        return new SecretMap(mapToMap(data, false), expireAt);
+        return builder().data(data).expiresAt(expireAt).build();
     }
 
-    private static Map<String, Secret> mapToMap(Map<String, ?> data, boolean base64) {
-        return data.entrySet().stream().collect(toMap(Map.Entry::getKey, e -> new Secret(e.getValue(), base64)));
+    /**
+     * Builds a secret map which secrets are stored off-heap
+     *
+     * @param data     the secret as a map (String/byte[] or String/String)
+     * @param base64   to declare data as base64 encoded
+     * @param expireAt when the secret expires, can be null
+     * @return a {@link SecretMap}
+     * @see Secret#offHeap(Object, boolean, Instant)
+     */
+    public static SecretMap ofOffHeap(Map<String, ?> data, boolean base64, Instant expireAt) {
+        return builder().data(data).base64(base64).offHeap(true).expiresAt(expireAt).build();
     }
 
     /**
@@ -136,6 +212,16 @@ public final class SecretMap implements WithExpiration {
         return Optional.ofNullable(expiresAt);
     }
 
+    @Override
+    public long expiresAtMillis() {
+        return expiresAtMillis;
+    }
+
+    @Override
+    public boolean isExpired(Clock clock) {
+        return expiresAt != null && clock.instant().isAfter(expiresAt);
+    }
+
     /**
      * Make well-know key accessible via {@link #wellKnown(WellKnownSecretKey)}
      * The map must be passed on as follows:
@@ -146,12 +232,15 @@ public final class SecretMap implements WithExpiration {
      * @param mapping the map describing the mapping
      * @return this updated {@link SecretMap} instance
      */
-    public SecretMap handleWellKnownSecretKeys(Map<String, WellKnownSecretKey> mapping) {
-        map
-            .entrySet()
-            .stream()
-            .filter(entry -> mapping.get(entry.getKey()) != null)
-            .forEach(entry -> wellKnown.put(mapping.get(entry.getKey()), entry.getValue()));
+    public synchronized SecretMap handleWellKnownSecretKeys(Map<String, WellKnownSecretKey> mapping) {
+        Secret[] updated = wellKnown.clone();
+        mapping.forEach((key, wellKnownKey) -> {
+            Secret secret = map.get(key);
+            if (secret != null && wellKnownKey != null) {
+                updated[wellKnownKey.ordinal()] = secret;
+            }
+        });
+        wellKnown = updated;
         return this;
     }
 
@@ -162,12 +251,62 @@ public final class SecretMap implements WithExpiration {
      * @return optional of a secret.
      */
     public Optional<Secret> wellKnown(WellKnownSecretKey key) {
-        return Optional.ofNullable(wellKnown.get(key));
+        return Optional.ofNullable(wellKnown[key.ordinal()]);
+    }
+
+    /**
+     * Destroy all off-heap secrets of this map, heap secrets are left untouched.
+     * Maps derived using {@link #withExpiresAt(SecretURL, Instant)} share the same secrets.
+     */
+    @Override
+    public void destroy() {
+        destroyed = true;
+        for (Secret secret : map.values()) {
+            if (secret.isOffHeap()) {
+                try {
+                    secret.destroy();
+                } catch (DestroyFailedException e) {
+                    // cannot happen for off-heap secrets
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean isDestroyed() {
+        return destroyed;
+    }
+
+    /**
+     * Earliest expiration of this map, considering the map expiration and the expiration of each secret.
+     * It is computed once per instance.
+     *
+     * @return optional of the earliest expiration
+     */
+    public Optional<Instant> nextExpiry() {
+        Optional<Instant> result = nextExpiry;
+        if (result == null) {
+            result = expiresAt();
+            for (Secret secret : map.values()) {
+                result = earliest(result, secret.expiresAt().orElse(null));
+            }
+            nextExpiry = result;
+        }
+        return result;
     }
 
     /**
      * Compute a new secret map with expiration. If the <code>secretURL</code> has a key,
-     * then only the secret matching that key will be set to expire. If not the whole map is set to expire.
+     * then only the secret matching that key will be set to expire and the map expiration is kept.
+     * If not the whole map is set to expire.
+     * <p>
+     * In both cases the new map keeps the well-known keys of this one, so {@link #wellKnown(WellKnownSecretKey)} answers the same
+     * without calling {@link #handleWellKnownSecretKeys(Map)} again. Earlier versions returned a map without well-known keys.
+     * Mapping more well-known keys afterward on one map does not affect the other.
+     * <p>
+     * Secrets are immutable and shared with the new map: setting the expiration of a key does not copy the map.
+     *
      * @param secretURL the secret URL to fetch that secret
      * @param expireAt the expiration instant
      * @return a new {@link SecretMap} containing expiring secrets
@@ -175,19 +314,136 @@ public final class SecretMap implements WithExpiration {
     public SecretMap withExpiresAt(SecretURL secretURL, Instant expireAt) {
         if (secretURL.key() == null || secretURL.key().isBlank()) {
             // the whole map can expire
-            return new SecretMap(this.asMap(), expireAt);
+            return new SecretMap(map, wellKnown, expireAt);
         } else {
-            Optional<Secret> expiring = this.getSecret(secretURL).map(secret -> secret.withExpiresAt(expireAt));
+            Secret secret = map.get(secretURL.key());
             // set the secret to expire
-            if (expiring.isPresent()) {
-                Map<String, Secret> secrets = new HashMap<>(this.asMap());
-                secrets.put(secretURL.key(), expiring.get());
-                return new SecretMap(secrets);
+            if (secret != null) {
+                Secret expiring = secret.withExpiresAt(expireAt);
+                SecretMap result = new SecretMap(
+                    SecretOverlayMap.with(map, secretURL.key(), expiring),
+                    replaceWellKnown(secret, expiring),
+                    expiresAt
+                );
+                Optional<Instant> known = nextExpiry;
+                if (known != null && (secret.expiresAt().isEmpty() || !secret.expiresAt().equals(known))) {
+                    // the replaced secret was not the earliest to expire
+                    result.nextExpiry = earliest(known, expireAt);
+                }
+                return result;
             }
             return this;
         }
     }
 
+    private Secret[] replaceWellKnown(Secret previous, Secret secret) {
+        Secret[] current = wellKnown;
+        Secret[] updated = current;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == previous) {
+                if (updated == current) {
+                    updated = current.clone();
+                }
+                updated[i] = secret;
+            }
+        }
+        return updated;
+    }
+
+    private static Optional<Instant> earliest(Optional<Instant> current, Instant candidate) {
+        if (candidate == null || current.isPresent() && !candidate.isBefore(current.get())) {
+            return current;
+        }
+        return Optional.of(candidate);
+    }
+
+    /**
+     * Builds a {@link SecretMap} from raw provider data. The immutable map of secrets and the well-known keys index
+     * are computed in a single pass over data when calling {@link #build()}.
+     */
+    public static final class Builder {
+
+        private Map<String, ?> data = Map.of();
+        private boolean base64;
+        private boolean offHeap;
+        private Instant expiresAt;
+        private Map<String, WellKnownSecretKey> wellKnownKeys = Map.of();
+
+        private Builder() {}
+
+        /**
+         * @param data the secret as a map (String/byte[] or String/String)
+         * @return this builder
+         */
+        public Builder data(Map<String, ?> data) {
+            this.data = data == null ? Map.of() : data;
+            return this;
+        }
+
+        /**
+         * @param base64 to declare data as base64 encoded
+         * @return this builder
+         */
+        public Builder base64(boolean base64) {
+            this.base64 = base64;
+            return this;
+        }
+
+        /**
+         * @param offHeap to store secrets off-heap
+         * @return this builder
+         * @see Secret#offHeap(Object, boolean, Instant)
+         */
+        public Builder offHeap(boolean offHeap) {
+            this.offHeap = offHeap;
+            return this;
+        }
+
+        /**
+         * @param expiresAt when the secret map expires, can be null
+         * @return this builder
+         */
+        public Builder expiresAt(Instant expiresAt) {
+            this.expiresAt = expiresAt;
+            return this;
+        }
+
+        /**
+         * @param wellKnownKeys mapping of data keys to well-known keys, keys absent from data are ignored
+         * @return this builder
+         * @see SecretMap#handleWellKnownSecretKeys(Map)
+         * @see SecretURL#wellKnowKeyMap()
+         */
+        public Builder wellKnownKeys(Map<String, WellKnownSecretKey> wellKnownKeys) {
+            this.wellKnownKeys = wellKnownKeys == null ? Map.of() : wellKnownKeys;
+            return this;
+        }
+
+        /**
+         * @return a new {@link SecretMap}
+         * @throws IllegalArgumentException if a value is not byte array or String or is null
+         */
+        public SecretMap build() {
+            String[] keys = new String[data.size()];
+            Secret[] secrets = new Secret[data.size()];
+            Secret[] wellKnown = NO_WELL_KNOWN;
+            int i = 0;
+            for (Map.Entry<String, ?> entry : data.entrySet()) {
+                Secret secret = offHeap ? Secret.offHeap(entry.getValue(), base64, null) : new Secret(entry.getValue(), base64);
+                keys[i] = entry.getKey();
+                secrets[i++] = secret;
+                WellKnownSecretKey wellKnownKey = wellKnownKeys.get(entry.getKey());
+                if (wellKnownKey != null) {
+                    if (wellKnown == NO_WELL_KNOWN) {
+                        wellKnown = new Secret[WELL_KNOWN_KEYS];
+                    }
+                    wellKnown[wellKnownKey.ordinal()] = secret;
+                }
+            }
+            return new SecretMap(SecretCompactMap.of(keys, secrets, i), wellKnown, expiresAt);
+        }
+    }
+
     /**
      * Well-known field that can typically exist find in a secret. This is from Gravitee.io point of view.
      * Any consumer of those field should use {@link SecretMap#wellKnown(WellKnownSecretKey)} to fetch the data.
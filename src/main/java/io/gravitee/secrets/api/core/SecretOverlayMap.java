@@ -0,0 +1,135 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.secrets.api.core;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Immutable map replacing the value of one existing key of a base map, the base map entries are shared.
+ * Overlays can be stacked up to {@link #MAX_DEPTH} after what they are collapsed into a flat immutable map (see {@link SecretCompactMap}),
+ * so lookups stay bounded while per-key updates only allocate an overlay.
+ *
+ * @author GraviteeSource Team
+ */
+final class SecretOverlayMap extends AbstractMap<String, Secret> {
+
+    static final int MAX_DEPTH = 8;
+
+    private final Map<String, Secret> base;
+    private final String key;
+    private final Secret value;
+    private final int depth;
+
+    private SecretOverlayMap(Map<String, Secret> base, String key, Secret value, int depth) {
+        this.base = base;
+        this.key = key;
+        this.value = value;
+        this.depth = depth;
+    }
+
+    /**
+     * Replace the value of an existing key
+     *
+     * @param map   an immutable map containing <code>key</code>
+     * @param key   the key to replace
+     * @param value the new value
+     * @return an immutable map sharing unchanged entries with <code>map</code> when possible
+     */
+    static Map<String, Secret> with(Map<String, Secret> map, String key, Secret value) {
+        Map<String, Secret> base = map;
+        int depth = 1;
+        if (map instanceof SecretOverlayMap overlay) {
+            if (overlay.key.equals(key)) {
+                // same key replaced again, no need to stack
+                base = overlay.base;
+                depth = overlay.depth;
+            } else {
+                depth = overlay.depth + 1;
+            }
+        }
+        if (depth > MAX_DEPTH) {
+            return flatten(new SecretOverlayMap(base, key, value, depth));
+        }
+        return new SecretOverlayMap(base, key, value, depth);
+    }
+
+    int depth() {
+        return depth;
+    }
+
+    @Override
+    public Secret get(Object key) {
+        return this.key.equals(key) ? value : base.get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return base.containsKey(key);
+    }
+
+    @Override
+    public int size() {
+        return base.size();
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super String, ? super Secret> action) {
+        base.forEach((k, v) -> action.accept(k, key.equals(k) ? value : v));
+    }
+
+    @Override
+    public Set<Entry<String, Secret>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<String, Secret>> iterator() {
+                Iterator<Entry<String, Secret>> entries = base.entrySet().iterator();
+                return new Iterator<>() {
+                    @Override
+                    public boolean hasNext() {
+                        return entries.hasNext();
+                    }
+
+                    @Override
+                    public Entry<String, Secret> next() {
+                        Entry<String, Secret> entry = entries.next();
+                        return key.equals(entry.getKey()) ? Map.entry(key, value) : entry;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return base.size();
+            }
+        };
+    }
+
+    private static Map<String, Secret> flatten(Map<String, Secret> map) {
+        String[] keys = new String[map.size()];
+        Secret[] secrets = new Secret[map.size()];
+        int[] i = { 0 };
+        map.forEach((key, secret) -> {
+            keys[i[0]] = key;
+            secrets[i[0]++] = secret;
+        });
+        return SecretCompactMap.of(keys, secrets, keys.length);
+    }
+}
@@ -17,8 +17,8 @@ package io.gravitee.secrets.api.core;
 
 import com.google.common.base.Splitter;
 import com.google.common.collect.Multimap;
-import com.google.common.collect.MultimapBuilder;
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -30,22 +30,41 @@ import lombok.NoArgsConstructor;
 /**
  * A URL-like representation of a secret location
  *
+ * @param provider   the secret provider id
+ * @param path       the path or name of the secret
+ * @param key        optional key in the secret
+ * @param query      the query string as an immutable multimap, copied into a compact immutable form when needed
+ * @param isURI      if it was parsed as a URI (not starting with 'secret://')
  * @author Benoit BORDIGONI (benoit.bordigoni at graviteesource.com)
  * @author GraviteeSource Team
  */
 public record SecretURL(String provider, String path, String key, Multimap<String, String> query, boolean isURI) {
     public static final char URL_SEPARATOR = '/';
     public static final String URI_KEY_SEPARATOR = ":";
-    private static final Splitter urlPathSplitter = Splitter.on(URL_SEPARATOR);
-    private static final Splitter queryParamSplitter = Splitter.on('&');
-    private static final Splitter queryParamKeyValueSplitter = Splitter.on('=');
     private static final Splitter keyMapParamValueSplitter = Splitter.on(URI_KEY_SEPARATOR.charAt(0));
     public static final String SCHEME = "secret://";
 
+    public SecretURL {
+        query = SecretURLQuery.copyOf(query);
+    }
+
     public static SecretURL from(String url) {
         return from(url, false);
     }
 
+    /**
+     * Same as {@link #from(String, boolean)} but instances are cached in the {@link SecretURLCache#shared()} cache.
+     * Repeated calls with the same string return the same instance until it gets evicted.
+     *
+     * @param url the string to parse
+     * @param isURI to indicate if it is a URI (does not start with 'secret://')
+     * @return a shared SecretURL object
+     * @throws IllegalArgumentException when failing to parse
+     */
+    public static SecretURL cached(String url, boolean isURI) {
+        return SecretURLCache.shared().get(url, isURI);
+    }
+
     /**
      * Parse the string into a {@link SecretURL}
      * <p>
@@ -65,56 +84,101 @@ public record SecretURL(String provider, String path, String key, Multimap<Strin
      * @throws IllegalArgumentException when failing to parse
      */
     public static SecretURL from(String url, boolean isURI) {
-        url = Objects.requireNonNull(url).trim();
-        if (!isURI && !url.startsWith(SCHEME)) {
-            throwFormatError(url);
+        Objects.requireNonNull(url);
+        // work with indexes on the raw string, substrings are only created for the parsed parts
+        int start = 0;
+        int end = url.length();
+        while (start < end && url.charAt(start) <= ' ') {
+            start++;
         }
-        String schemeLess = isURI ? url.substring(1) : url.substring(SCHEME.length());
-        int firstSlash = schemeLess.indexOf('/');
-        if (firstSlash < 0 || firstSlash == schemeLess.length() - 1) {
-            throwFormatError(url);
+        while (end > start && url.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        if (isURI ? start == end : !url.startsWith(SCHEME, start)) {
+            throwFormatError(url.substring(start, end));
         }
 
-        String provider = schemeLess.substring(0, firstSlash).trim();
-        int questionMarkPos = schemeLess.indexOf('?');
-        if (questionMarkPos == firstSlash + 1) {
-            throwFormatError(url);
+        final int schemeLess = start + (isURI ? 1 : SCHEME.length());
+        final int firstSlash = indexOf(url, URL_SEPARATOR, schemeLess, end);
+        if (firstSlash < 0 || firstSlash == end - 1) {
+            throwFormatError(url.substring(start, end));
         }
 
-        String path;
-        final String key;
-        final Multimap<String, String> query;
+        int providerStart = schemeLess;
+        int providerEnd = firstSlash;
+        while (providerStart < providerEnd && url.charAt(providerStart) <= ' ') {
+            providerStart++;
+        }
+        while (providerEnd > providerStart && url.charAt(providerEnd - 1) <= ' ') {
+            providerEnd--;
+        }
 
-        if (questionMarkPos > 0) {
-            path = schemeLess.substring(provider.length() + 1, questionMarkPos).trim();
-            query = parseQuery(schemeLess.substring(questionMarkPos + 1));
-        } else {
-            path = schemeLess.substring(provider.length() + 1).trim();
-            query = MultimapBuilder.hashKeys().arrayListValues().build();
+        final int questionMark = indexOf(url, '?', schemeLess, end);
+        if (questionMark == firstSlash + 1) {
+            throwFormatError(url.substring(start, end));
         }
 
-        int columnIndex = path.lastIndexOf(':');
-        if (columnIndex > path.lastIndexOf(URL_SEPARATOR)) {
-            key = path.substring(columnIndex + 1);
-            path = path.substring(0, columnIndex);
-        } else {
-            key = null;
+        // path is located right after the trimmed provider
+        int pathStart = schemeLess + (providerEnd - providerStart) + 1;
+        int pathEnd = end;
+        int queryStart = -1;
+        if (questionMark > schemeLess) {
+            if (questionMark < pathStart) {
+                throwFormatError(url.substring(start, end));
+            }
+            pathEnd = questionMark;
+            queryStart = questionMark + 1;
+        }
+        while (pathStart < pathEnd && url.charAt(pathStart) <= ' ') {
+            pathStart++;
+        }
+        while (pathEnd > pathStart && url.charAt(pathEnd - 1) <= ' ') {
+            pathEnd--;
         }
 
-        // remove trailing slashes
-        while (!path.isEmpty() && path.charAt(path.length() - 1) == URL_SEPARATOR) {
-            path = path.substring(0, path.length() - 1);
+        // key is what follows the last ':' when located after the last '/'
+        String key = null;
+        for (int i = pathEnd - 1; i >= pathStart; i--) {
+            char c = url.charAt(i);
+            if (c == URL_SEPARATOR) {
+                break;
+            }
+            if (c == ':') {
+                key = url.substring(i + 1, pathEnd);
+                pathEnd = i;
+                break;
+            }
         }
 
-        if (path.isBlank()) {
-            throwFormatError(url);
+        // remove trailing slashes
+        while (pathEnd > pathStart && url.charAt(pathEnd - 1) == URL_SEPARATOR) {
+            pathEnd--;
         }
 
-        if (urlPathSplitter.splitToList(path).stream().anyMatch(String::isBlank)) {
-            throwFormatError(url);
+        // path cannot be blank nor contain blank segments
+        boolean blankSegment = true;
+        for (int i = pathStart; i < pathEnd; i++) {
+            char c = url.charAt(i);
+            if (c == URL_SEPARATOR) {
+                if (blankSegment) {
+                    throwFormatError(url.substring(start, end));
+                }
+                blankSegment = true;
+            } else if (blankSegment && !Character.isWhitespace(c)) {
+                blankSegment = false;
+            }
+        }
+        if (blankSegment) {
+            throwFormatError(url.substring(start, end));
         }
 
-        return new SecretURL(provider, path, key, query, isURI);
+        return new SecretURL(
+            url.substring(providerStart, providerEnd),
+            url.substring(pathStart, pathEnd),
+            key,
+            queryStart < 0 ? SecretURLQuery.EMPTY : parseQuery(url, queryStart, end),
+            isURI
+        );
     }
 
     public boolean isKeyEmpty() {
@@ -130,23 +194,48 @@ public record SecretURL(String provider, String path, String key, Multimap<Strin
         );
     }
 
-    private static Multimap<String, String> parseQuery(String substring) {
-        Multimap<String, String> query = MultimapBuilder.hashKeys().arrayListValues().build();
-        queryParamSplitter
-            .split(substring)
-            .forEach(pair -> {
-                Iterable<String> parts = queryParamKeyValueSplitter.split(pair);
-                Iterator<String> iterator = parts.iterator();
-                if (iterator.hasNext()) {
-                    String key = iterator.next();
-                    if (iterator.hasNext()) {
-                        query.put(key, iterator.next());
-                    } else {
-                        query.put(key, "true");
-                    }
-                }
-            });
-        return query;
+    private static SecretURLQuery parseQuery(String url, int start, int end) {
+        // keys and values alternated
+        String[] params = new String[4];
+        int length = 0;
+        int pairStart = start;
+        while (pairStart <= end) {
+            int pairEnd = indexOf(url, '&', pairStart, end);
+            if (pairEnd < 0) {
+                pairEnd = end;
+            }
+            if (length == params.length) {
+                params = Arrays.copyOf(params, length * 2);
+            }
+            int equals = indexOf(url, '=', pairStart, pairEnd);
+            if (equals < 0) {
+                params[length++] = url.substring(pairStart, pairEnd);
+                params[length++] = "true";
+            } else {
+                // only the first value is kept when '=' is repeated
+                int valueEnd = indexOf(url, '=', equals + 1, pairEnd);
+                params[length++] = url.substring(pairStart, equals);
+                params[length++] = url.substring(equals + 1, valueEnd < 0 ? pairEnd : valueEnd);
+            }
+            pairStart = pairEnd + 1;
+        }
+        return SecretURLQuery.of(params, length);
+    }
+
+    private static int indexOf(String str, char c, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (str.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return well-known query parameters, computed from the query on first access
+     */
+    public QueryIndex queryIndex() {
+        return ((SecretURLQuery) query).index();
     }
 
     /**
@@ -155,7 +244,7 @@ public record SecretURL(String provider, String path, String key, Multimap<Strin
      * @return true if <code>watch=true</code> was found.
      */
     public boolean isWatchable() {
-        return queryParamEqualsIgnoreCase(WellKnownQueryParam.WATCH, "true");
+        return queryIndex().watch();
     }
 
     /**
@@ -174,7 +263,10 @@ public record SecretURL(String provider, String path, String key, Multimap<Strin
      * @return true if name and value is found
      */
     public boolean queryParamEqualsIgnoreCase(@Nonnull String name, String value) {
-        return query().entries().stream().anyMatch(e -> Objects.equals(e.getKey(), name) && e.getValue().equalsIgnoreCase(value));
+        if (QueryIndex.isFlag(name) && Boolean.TRUE.toString().equalsIgnoreCase(value)) {
+            return queryIndex().flag(name);
+        }
+        return ((SecretURLQuery) query).anyValueEqualsIgnoreCase(name, value);
     }
 
     /**
@@ -182,14 +274,17 @@ public record SecretURL(String provider, String path, String key, Multimap<Strin
      * <p>format is &lt;well known key&gt;:&lt;key in secret&gt;</p>
      * If the well known key is unknown then it is ignored.
      *
-     * @return a map to help extracting well known keys out of the secret.
+     * @return an immutable map to help extracting well known keys out of the secret.
      * @see SecretMap#handleWellKnownSecretKeys(Map)
      * @see SecretMap.WellKnownSecretKey
      */
     public Map<String, SecretMap.WellKnownSecretKey> wellKnowKeyMap() {
+        return queryIndex().wellKnowKeyMap();
+    }
+
+    private static Map<String, SecretMap.WellKnownSecretKey> parseKeyMaps(List<String> keyMaps) {
         record Mapping(String secretKey, SecretMap.WellKnownSecretKey wellKnow) {}
-        return query()
-            .get(WellKnownQueryParam.KEYMAP)
+        return keyMaps
             .stream()
             .map(keyMap -> {
                 List<String> mapping = keyMapParamValueSplitter.splitToList(keyMap);
@@ -209,7 +304,7 @@ public record SecretURL(String provider, String path, String key, Multimap<Strin
                 return new Mapping(null, null);
             })
             .filter(mapping -> mapping.wellKnow() != null)
-            .collect(Collectors.toMap(Mapping::secretKey, Mapping::wellKnow));
+            .collect(Collectors.toUnmodifiableMap(Mapping::secretKey, Mapping::wellKnow));
     }
 
     @NoArgsConstructor(access = AccessLevel.PRIVATE)
@@ -219,6 +314,171 @@ public record SecretURL(String provider, String path, String key, Multimap<Strin
         public static final String KEYMAP = "keymap";
         public static final String NAMESPACE = "namespace";
         public static final String RESOLVE_BEFORE_WATCH = "resolveBeforeWatch";
+        public static final String RENEWABLE = "renewable";
+        public static final String RELOAD_ON_CHANGE = "reloadOnChange";
+    }
+
+    /**
+     * Well-known query parameters of a {@link SecretURL} computed once from its query, and kept with it.
+     * Flags are true when the parameter has <code>true</code> (case-insensitive) as value or no value at all.
+     * The well-known key map is computed on first access then memoized.
+     */
+    public static final class QueryIndex {
+
+        private static final QueryIndex EMPTY = new QueryIndex(false, false, false, false, null, List.of());
+
+        private final boolean watch;
+        private final boolean resolveBeforeWatch;
+        private final boolean renewable;
+        private final boolean reloadOnChange;
+        private final String namespace;
+        private final List<String> keyMaps;
+        private volatile Map<String, SecretMap.WellKnownSecretKey> wellKnowKeyMap;
+
+        private QueryIndex(
+            boolean watch,
+            boolean resolveBeforeWatch,
+            boolean renewable,
+            boolean reloadOnChange,
+            String namespace,
+            List<String> keyMaps
+        ) {
+            this.watch = watch;
+            this.resolveBeforeWatch = resolveBeforeWatch;
+            this.renewable = renewable;
+            this.reloadOnChange = reloadOnChange;
+            this.namespace = namespace;
+            this.keyMaps = keyMaps;
+            this.wellKnowKeyMap = keyMaps.isEmpty() ? Map.of() : null;
+        }
+
+        /**
+         * Compute the index of a query
+         * @param query the query of a {@link SecretURL}
+         * @return the query index
+         */
+        public static QueryIndex of(Multimap<String, String> query) {
+            SecretURLQuery params = SecretURLQuery.copyOf(query);
+            if (params.isEmpty()) {
+                return EMPTY;
+            }
+            boolean watch = false;
+            boolean resolveBeforeWatch = false;
+            boolean renewable = false;
+            boolean reloadOnChange = false;
+            String namespace = null;
+            List<String> keyMaps = null;
+            for (int i = 0; i < params.size(); i++) {
+                String value = params.value(i);
+                boolean isTrue = Boolean.TRUE.toString().equalsIgnoreCase(value);
+                switch (params.key(i)) {
+                    case WellKnownQueryParam.WATCH -> watch |= isTrue;
+                    case WellKnownQueryParam.RESOLVE_BEFORE_WATCH -> resolveBeforeWatch |= isTrue;
+                    case WellKnownQueryParam.RENEWABLE -> renewable |= isTrue;
+                    case WellKnownQueryParam.RELOAD_ON_CHANGE -> reloadOnChange |= isTrue;
+                    case WellKnownQueryParam.NAMESPACE -> namespace = namespace == null ? value : namespace;
+                    case WellKnownQueryParam.KEYMAP -> {
+                        if (keyMaps == null) {
+                            keyMaps = new ArrayList<>(2);
+                        }
+                        keyMaps.add(value);
+                    }
+                    default -> {
+                        // not indexed
+                    }
+                }
+            }
+            return new QueryIndex(
+                watch,
+                resolveBeforeWatch,
+                renewable,
+                reloadOnChange,
+                namespace,
+                keyMaps == null ? List.of() : List.copyOf(keyMaps)
+            );
+        }
+
+        /**
+         * @return true if <code>watch=true</code> was found
+         */
+        public boolean watch() {
+            return watch;
+        }
+
+        /**
+         * @return true if <code>resolveBeforeWatch=true</code> was found
+         */
+        public boolean resolveBeforeWatch() {
+            return resolveBeforeWatch;
+        }
+
+        /**
+         * @return true if <code>renewable=true</code> was found
+         */
+        public boolean renewable() {
+            return renewable;
+        }
+
+        /**
+         * @return true if <code>reloadOnChange=true</code> was found
+         */
+        public boolean reloadOnChange() {
+            return reloadOnChange;
+        }
+
+        /**
+         * @return first value of the <code>namespace</code> param or null
+         */
+        public String namespace() {
+            return namespace;
+        }
+
+        /**
+         * @return the well-known key mapping as described in {@link SecretURL#wellKnowKeyMap()}
+         * @throws IllegalArgumentException if a keymap is not valid
+         */
+        public Map<String, SecretMap.WellKnownSecretKey> wellKnowKeyMap() {
+            Map<String, SecretMap.WellKnownSecretKey> result = wellKnowKeyMap;
+            if (result == null) {
+                // computing twice concurrently is harmless, failures are not memoized
+                result = parseKeyMaps(keyMaps);
+                wellKnowKeyMap = result;
+            }
+            return result;
+        }
+
+        private static boolean isFlag(String name) {
+            return (
+                WellKnownQueryParam.WATCH.equals(name) ||
+                WellKnownQueryParam.RESOLVE_BEFORE_WATCH.equals(name) ||
+                WellKnownQueryParam.RENEWABLE.equals(name) ||
+                WellKnownQueryParam.RELOAD_ON_CHANGE.equals(name)
+            );
+        }
+
+        private boolean flag(String name) {
+            return switch (name) {
+                case WellKnownQueryParam.WATCH -> watch;
+                case WellKnownQueryParam.RESOLVE_BEFORE_WATCH -> resolveBeforeWatch;
+                case WellKnownQueryParam.RENEWABLE -> renewable;
+                case WellKnownQueryParam.RELOAD_ON_CHANGE -> reloadOnChange;
+                default -> false;
+            };
+        }
+
+        @Override
+        public String toString() {
+            return (
+                "QueryIndex[watch=%s, resolveBeforeWatch=%s, renewable=%s, reloadOnChange=%s, namespace=%s, keyMaps=%s]".formatted(
+                        watch,
+                        resolveBeforeWatch,
+                        renewable,
+                        reloadOnChange,
+                        namespace,
+                        keyMaps
+                    )
+            );
+        }
     }
 
     /**
@@ -0,0 +1,110 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.secrets.api.core;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import java.util.Objects;
+
+/**
+ * Bounded and thread-safe cache of parsed {@link SecretURL} keyed by the raw string and whether it is a URI.
+ * <p>
+ * Parsed {@link SecretURL} are immutable, the same instance is returned for the same raw string until it is evicted.
+ * Eviction is size based: when the maximum size is reached, least recently used entries are evicted first.
+ * Strings that fail to parse are never cached.
+ * </p>
+ *
+ * @author GraviteeSource Team
+ * @see SecretURL#cached(String, boolean)
+ */
+public final class SecretURLCache {
+
+    public static final long DEFAULT_MAXIMUM_SIZE = 10_000;
+
+    private final Cache<Key, SecretURL> cache;
+
+    /**
+     * Create a cache of {@link #DEFAULT_MAXIMUM_SIZE} entries
+     */
+    public SecretURLCache() {
+        this(DEFAULT_MAXIMUM_SIZE);
+    }
+
+    /**
+     * Create a cache with a given capacity
+     *
+     * @param maximumSize maximum number of parsed URLs kept in the cache
+     * @throws IllegalArgumentException if <code>maximumSize</code> is negative
+     */
+    public SecretURLCache(long maximumSize) {
+        this.cache = CacheBuilder.newBuilder().maximumSize(maximumSize).recordStats().build();
+    }
+
+    /**
+     * @return the instance used by {@link SecretURL#cached(String, boolean)}
+     */
+    public static SecretURLCache shared() {
+        return SharedHolder.INSTANCE;
+    }
+
+    /**
+     * Return the cached {@link SecretURL} for this string or parse it and cache the result.
+     *
+     * @param url   the string to parse
+     * @param isURI to indicate if it is a URI (does not start with 'secret://')
+     * @return a shared immutable {@link SecretURL}
+     * @throws IllegalArgumentException when failing to parse
+     * @see SecretURL#from(String, boolean)
+     */
+    public SecretURL get(String url, boolean isURI) {
+        Key key = new Key(Objects.requireNonNull(url), isURI);
+        SecretURL secretURL = cache.getIfPresent(key);
+        if (secretURL == null) {
+            secretURL = SecretURL.from(url, isURI);
+            cache.put(key, secretURL);
+        }
+        return secretURL;
+    }
+
+    /**
+     * @return number of cached URLs
+     */
+    public long size() {
+        return cache.size();
+    }
+
+    /**
+     * @return hit, miss and eviction counters of this cache
+     */
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    /**
+     * Evict all cached URLs
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    private record Key(String url, boolean isURI) {}
+
+    private static final class SharedHolder {
+
+        private static final SecretURLCache INSTANCE = new SecretURLCache();
+    }
+}
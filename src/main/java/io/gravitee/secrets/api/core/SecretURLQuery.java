@@ -0,0 +1,276 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.secrets.api.core;
+
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Multiset;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Immutable query of a {@link SecretURL}.
+ * <p>
+ * Query params are stored in a single flat array alternating keys and values in parsing order,
+ * which is much lighter than a hash based multimap for the few params a secret URL usually has.
+ * Lookups are linear scans. Collection views ({@link #asMap()}, {@link #keySet()}, {@link #entries()}...)
+ * are served by an {@link ImmutableListMultimap} created on first use.
+ * Mutation methods always throw {@link UnsupportedOperationException}.
+ * </p>
+ *
+ * @author GraviteeSource Team
+ */
+final class SecretURLQuery implements ListMultimap<String, String> {
+
+    static final SecretURLQuery EMPTY = new SecretURLQuery(new String[0]);
+
+    /**
+     * key0, value0, key1, value1...
+     */
+    private final String[] params;
+    private ImmutableListMultimap<String, String> view;
+    private SecretURL.QueryIndex index;
+
+    private SecretURLQuery(String[] params) {
+        this.params = params;
+    }
+
+    /**
+     * @param params keys and values alternated, the array is not copied
+     * @param length number of used slots in <code>params</code>
+     * @return a query instance
+     */
+    static SecretURLQuery of(String[] params, int length) {
+        if (length == 0) {
+            return EMPTY;
+        }
+        return new SecretURLQuery(length == params.length ? params : Arrays.copyOf(params, length));
+    }
+
+    /**
+     * @param multimap the multimap to copy
+     * @return the same instance if it is already a {@link SecretURLQuery} or an immutable copy
+     */
+    static SecretURLQuery copyOf(Multimap<String, String> multimap) {
+        if (multimap instanceof SecretURLQuery query) {
+            return query;
+        }
+        if (multimap == null || multimap.isEmpty()) {
+            return EMPTY;
+        }
+        String[] params = new String[multimap.size() * 2];
+        int i = 0;
+        for (Map.Entry<String, String> entry : multimap.entries()) {
+            params[i++] = entry.getKey();
+            params[i++] = entry.getValue();
+        }
+        return new SecretURLQuery(params);
+    }
+
+    String key(int index) {
+        return params[index * 2];
+    }
+
+    String value(int index) {
+        return params[index * 2 + 1];
+    }
+
+    /**
+     * @return well-known params of this query, computed on first call
+     */
+    SecretURL.QueryIndex index() {
+        // racy but safe: QueryIndex is immutable apart from its volatile memoized key map, it can be computed more than once
+        SecretURL.QueryIndex result = index;
+        if (result == null) {
+            result = SecretURL.QueryIndex.of(this);
+            index = result;
+        }
+        return result;
+    }
+
+    boolean anyValueEqualsIgnoreCase(String key, String value) {
+        for (int i = 0; i < params.length; i += 2) {
+            if (params[i].equals(key) && params[i + 1].equalsIgnoreCase(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public int size() {
+        return params.length / 2;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return params.length == 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        for (int i = 0; i < params.length; i += 2) {
+            if (params[i].equals(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        for (int i = 1; i < params.length; i += 2) {
+            if (params[i].equals(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean containsEntry(Object key, Object value) {
+        for (int i = 0; i < params.length; i += 2) {
+            if (params[i].equals(key) && params[i + 1].equals(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public List<String> get(String key) {
+        int count = 0;
+        String first = null;
+        for (int i = 0; i < params.length; i += 2) {
+            if (params[i].equals(key)) {
+                if (count++ == 0) {
+                    first = params[i + 1];
+                }
+            }
+        }
+        if (count <= 1) {
+            return count == 0 ? List.of() : List.of(first);
+        }
+        return view().get(key);
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super String, ? super String> action) {
+        for (int i = 0; i < params.length; i += 2) {
+            action.accept(params[i], params[i + 1]);
+        }
+    }
+
+    @Override
+    public Set<String> keySet() {
+        return view().keySet();
+    }
+
+    @Override
+    public Multiset<String> keys() {
+        return view().keys();
+    }
+
+    @Override
+    public Collection<String> values() {
+        return view().values();
+    }
+
+    @Override
+    public Collection<Map.Entry<String, String>> entries() {
+        return view().entries();
+    }
+
+    @Override
+    public Map<String, Collection<String>> asMap() {
+        return view().asMap();
+    }
+
+    @Override
+    public boolean put(String key, String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean putAll(String key, Iterable<? extends String> values) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean putAll(Multimap<? extends String, ? extends String> multimap) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<String> replaceValues(String key, Iterable<? extends String> values) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<String> removeAll(Object key) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void clear() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        return o instanceof Multimap<?, ?> && view().equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        return view().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        // not kept to avoid retaining the view of a logged URL
+        return view != null ? view.toString() : buildView().toString();
+    }
+
+    private ImmutableListMultimap<String, String> view() {
+        // racy but safe: ImmutableListMultimap is immutable and can be computed more than once
+        ImmutableListMultimap<String, String> result = view;
+        if (result == null) {
+            result = buildView();
+            view = result;
+        }
+        return result;
+    }
+
+    private ImmutableListMultimap<String, String> buildView() {
+        ImmutableListMultimap.Builder<String, String> builder = ImmutableListMultimap.builder();
+        forEach(builder::put);
+        return builder.build();
+    }
+}
@@ -15,6 +15,7 @@
  */
 package io.gravitee.secrets.api.core;
 
+import java.time.Clock;
 import java.time.Instant;
 import java.util.Optional;
 
@@ -31,11 +32,52 @@ public interface WithExpiration {
      */
     Optional<Instant> expiresAt();
 
+    /**
+     * Expiration as milliseconds since epoch, truncated to the millisecond, for cheap comparisons.
+     * Implementations should override it to return a precomputed value.
+     *
+     * @return the expiration in epoch milliseconds or {@link Long#MAX_VALUE} if it never expires
+     */
+    default long expiresAtMillis() {
+        return expiresAt().map(WithExpiration::toEpochMillis).orElse(Long.MAX_VALUE);
+    }
+
     /**
      * Check expiration is reached when calling this method
      * @return true if there is an expiration set and it has expired
      */
     default boolean isExpired() {
-        return expiresAt().map(instant -> Instant.now().isAfter(instant)).orElse(false);
+        return isExpired(Clock.systemUTC());
+    }
+
+    /**
+     * Check expiration is reached at the instant given by a clock
+     * @param clock the clock to read the current instant from
+     * @return true if there is an expiration set and it has expired
+     */
+    default boolean isExpired(Clock clock) {
+        return expiresAtMillis() != Long.MAX_VALUE && expiresAt().map(clock.instant()::isAfter).orElse(false);
+    }
+
+    /**
+     * Check expiration is reached at a given time with a millisecond precision, it is a single comparison
+     * when {@link #expiresAtMillis()} is precomputed. Typically used with a coarse clock on hot paths.
+     * @param nowMillis the current time in epoch milliseconds
+     * @return true if there is an expiration set and it has expired
+     */
+    default boolean isExpired(long nowMillis) {
+        return nowMillis > expiresAtMillis();
+    }
+
+    /**
+     * @param instant an instant
+     * @return epoch milliseconds of the instant, saturated to {@link Long#MIN_VALUE} or {@link Long#MAX_VALUE} - 1
+     */
+    static long toEpochMillis(Instant instant) {
+        try {
+            return Math.min(instant.toEpochMilli(), Long.MAX_VALUE - 1);
+        } catch (ArithmeticException e) {
+            return instant.isBefore(Instant.EPOCH) ? Long.MIN_VALUE : Long.MAX_VALUE - 1;
+        }
     }
 }
@@ -0,0 +1,675 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.secrets.api.plugin;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.AbstractCache;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.RemovalCause;
+import io.gravitee.secrets.api.core.Secret;
+import io.gravitee.secrets.api.core.SecretEvent;
+import io.gravitee.secrets.api.core.SecretMap;
+import io.gravitee.secrets.api.core.SecretURL;
+import io.gravitee.secrets.api.core.WithExpiration;
+import io.gravitee.secrets.api.errors.SecretAccessDeniedException;
+import io.gravitee.secrets.api.errors.SecretManagerException;
+import io.gravitee.secrets.api.spec.OnErrorStrategy;
+import io.reactivex.rxjava3.core.Flowable;
+import io.reactivex.rxjava3.core.Maybe;
+import io.reactivex.rxjava3.core.Scheduler;
+import io.reactivex.rxjava3.disposables.CompositeDisposable;
+import io.reactivex.rxjava3.schedulers.Schedulers;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link SecretProvider} decorator caching resolved {@link SecretMap} in memory, so repeated resolutions of a same secret
+ * do not call the decorated provider.
+ * <p>
+ * Entries are keyed by {@link SecretURL} (provider and path) and are never returned once expired:
+ * when resolving a URL with a key, the expiration of the map and of that key are considered,
+ * without key the earliest expiration of the map and all its secrets is considered (see {@link SecretMap#nextExpiry()}).
+ * Expired entries are removed when read.
+ * <p>
+ * The cache is bounded by a maximum number of entries and optionally by a maximum weight: the number of bytes of keys and secret values.
+ * When both are set, each entry weighs at least <code>maximumWeight / maximumSize</code> so that neither bound can be exceeded.
+ * The cache is split into segments, see {@link Builder#concurrencyLevel(int)}, each holding a share of both bounds:
+ * least recently used entries of a segment are evicted first, so the eviction order is only approximately LRU across the cache.
+ * <p>
+ * Entries can be refreshed ahead of time, see {@link Builder#refreshAhead(double)} and {@link Builder#timeToLive(Duration)}:
+ * once an entry reaches its refresh point, it is still served while the decorated provider is called in the background.
+ * Readers never wait for a refresh, only for a miss. A refresh only replaces the entry it was started for: secrets invalidated
+ * meanwhile are not put back. Refreshes in progress are cancelled by {@link #stop()}.
+ * <p>
+ * {@link #resolveAll(Collection, int)} returns cached secrets and only asks the decorated provider for the others, in a single batch.
+ * <p>
+ * Watched events update the cache: created and updated secrets replace the cached ones, deleted secrets are invalidated.
+ * <p>
+ * Secret maps the cache drops on its own, because they are evicted, expired or replaced by a newer version,
+ * are {@link SecretMap#destroy() destroyed} so that off-heap secrets are wiped as soon as possible:
+ * callers must not keep a resolved map beyond its use. Maps removed by {@link #invalidate(SecretURL)}, {@link #invalidateAll()}
+ * or a deletion event are left untouched, callers still using them own them.
+ * <p>
+ * Empty results and errors are not cached, unless negative caching is enabled with {@link Builder#negativeCaching(OnErrorStrategy.ReturnEmpty, Duration)}:
+ * outcomes selected by the flags are then replayed without calling the decorated provider for a short time-to-live.
+ *
+ * @author GraviteeSource Team
+ */
+public final class CachingSecretProvider extends DelegatingSecretProvider {
+
+    public static final long DEFAULT_MAXIMUM_SIZE = 10_000;
+    public static final int DEFAULT_CONCURRENCY_LEVEL = 4;
+
+    private final Cache<SecretURL, Entry> cache;
+    // null when negative caching is disabled
+    private final Cache<SecretURL, Miss> negativeCache;
+    private final OnErrorStrategy.ReturnEmpty negativeCaching;
+    private final AbstractCache.SimpleStatsCounter statsCounter = new AbstractCache.SimpleStatsCounter();
+    private final Clock clock;
+    private final long timeToLiveMillis;
+    private final double refreshAhead;
+    private final Scheduler refreshScheduler;
+    private final LongAdder staleServes = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder refreshFailures = new LongAdder();
+    private final LongAdder refreshed = new LongAdder();
+    private final LongAdder refreshNanos = new LongAdder();
+    private final LongAccumulator maxRefreshNanos = new LongAccumulator(Math::max, 0);
+    private final CompositeDisposable pendingRefreshes = new CompositeDisposable();
+
+    private CachingSecretProvider(Builder builder) {
+        super(builder.delegate);
+        this.clock = builder.clock;
+        this.timeToLiveMillis = builder.timeToLive == null ? 0 : builder.timeToLive.toMillis();
+        this.refreshAhead = builder.refreshAhead > 0 ? builder.refreshAhead : timeToLiveMillis > 0 ? 1 : 0;
+        this.refreshScheduler = builder.refreshScheduler;
+        CacheBuilder<Object, Object> cacheBuilder = CacheBuilder
+            .newBuilder()
+            // with a weight, segments are sized as if only bounded by size (at least 20 entries each, like Guava does)
+            // so that each segment can hold entries of the minimum weight
+            .concurrencyLevel(
+                builder.maximumWeight > 0
+                    ? (int) Math.max(1, Math.min(builder.concurrencyLevel, builder.maximumSize / 20))
+                    : builder.concurrencyLevel
+            )
+            .removalListener(notification -> {
+                if (notification.wasEvicted()) {
+                    statsCounter.recordEviction();
+                }
+                if (notification.getCause() != RemovalCause.EXPLICIT) {
+                    release((SecretURL) notification.getKey(), (Entry) notification.getValue());
+                }
+            });
+        if (builder.maximumWeight > 0) {
+            long minimumWeight = Math.max(1, -Math.floorDiv(-builder.maximumWeight, builder.maximumSize));
+            cacheBuilder
+                .maximumWeight(builder.maximumWeight)
+                .weigher((SecretURL url, Entry entry) -> (int) Math.min(Integer.MAX_VALUE, Math.max(entry.weight, minimumWeight)));
+        } else {
+            cacheBuilder.maximumSize(builder.maximumSize);
+        }
+        this.cache = cacheBuilder.build();
+        this.negativeCaching = builder.negativeCaching;
+        if (negativeCaching != null) {
+            this.negativeCache =
+                CacheBuilder
+                    .newBuilder()
+                    .maximumSize(builder.maximumSize)
+                    .expireAfterWrite(builder.negativeTimeToLive)
+                    .ticker(
+                        new Ticker() {
+                            @Override
+                            public long read() {
+                                return TimeUnit.MILLISECONDS.toNanos(clock.millis());
+                            }
+                        }
+                    )
+                    .build();
+        } else {
+            this.negativeCache = null;
+        }
+    }
+
+    /**
+     * @param delegate the provider to decorate
+     * @return a builder of {@link CachingSecretProvider}
+     */
+    public static Builder builder(SecretProvider delegate) {
+        return new Builder(delegate);
+    }
+
+    @Override
+    public Maybe<SecretMap> resolve(SecretURL secretURL) {
+        return Maybe.defer(() -> {
+            Miss miss = lookupMiss(secretURL);
+            if (miss != null) {
+                return miss.error() == null ? Maybe.empty() : Maybe.error(miss.replay());
+            }
+            SecretMap cached = lookup(secretURL, true);
+            if (cached != null) {
+                return Maybe.just(cached);
+            }
+            long start = System.nanoTime();
+            return super
+                .resolve(secretURL)
+                .doOnSuccess(secretMap -> {
+                    statsCounter.recordLoadSuccess(System.nanoTime() - start);
+                    put(secretURL, secretMap);
+                })
+                .doOnComplete(() -> putMiss(secretURL, null))
+                .onErrorResumeNext(throwable -> {
+                    statsCounter.recordLoadException(System.nanoTime() - start);
+                    Miss cachedMiss = putMiss(secretURL, throwable);
+                    // a cached error is signaled the same way the first time and on replays
+                    return Maybe.error(cachedMiss == null ? throwable : cachedMiss.replay());
+                });
+        });
+    }
+
+    @Override
+    public Flowable<Map.Entry<SecretURL, SecretMap>> resolveAll(Collection<SecretURL> secretURLs, int maxConcurrency) {
+        return Flowable.defer(() -> {
+            List<Map.Entry<SecretURL, SecretMap>> hits = new ArrayList<>();
+            Set<SecretURL> misses = new LinkedHashSet<>();
+            Throwable cachedError = null;
+            for (SecretURL secretURL : new LinkedHashSet<>(secretURLs)) {
+                Miss miss = lookupMiss(secretURL);
+                if (miss != null) {
+                    if (cachedError == null && miss.error() != null) {
+                        cachedError = miss.replay();
+                    }
+                    continue;
+                }
+                SecretMap cached = lookup(secretURL, true);
+                if (cached != null) {
+                    hits.add(Map.entry(secretURL, cached));
+                } else {
+                    misses.add(secretURL);
+                }
+            }
+            // like the default implementation, errors are signaled after the other secrets
+            Flowable<Map.Entry<SecretURL, SecretMap>> error = cachedError == null ? Flowable.empty() : Flowable.error(cachedError);
+            if (misses.isEmpty()) {
+                return Flowable.concat(Flowable.fromIterable(hits), error);
+            }
+            long start = System.nanoTime();
+            Set<SecretURL> found = new LinkedHashSet<>();
+            Flowable<Map.Entry<SecretURL, SecretMap>> loaded = super
+                .resolveAll(misses, maxConcurrency)
+                .doOnNext(entry -> {
+                    statsCounter.recordLoadSuccess(System.nanoTime() - start);
+                    found.add(entry.getKey());
+                    put(entry.getKey(), entry.getValue());
+                })
+                .doOnComplete(() -> {
+                    // errors cannot be matched to a secret, only those not found are cached
+                    for (SecretURL secretURL : misses) {
+                        if (!found.contains(secretURL)) {
+                            putMiss(secretURL, null);
+                        }
+                    }
+                })
+                .doOnError(throwable -> statsCounter.recordLoadException(System.nanoTime() - start));
+            return Flowable.concat(Flowable.fromIterable(hits), loaded, error);
+        });
+    }
+
+    @Override
+    public Flowable<SecretEvent> watch(SecretURL secretURL) {
+        return super
+            .watch(secretURL)
+            .doOnNext(event -> {
+                switch (event.type()) {
+                    case CREATED, UPDATED -> put(secretURL, event.secretMap());
+                    case DELETED -> {
+                        cache.invalidate(secretURL);
+                        putMiss(secretURL, null);
+                    }
+                }
+            });
+    }
+
+    /**
+     * Cancel background refreshes in progress, no refresh is started afterward
+     */
+    @Override
+    public SecretProvider stop() {
+        pendingRefreshes.dispose();
+        return super.stop();
+    }
+
+    /**
+     * Read the cache without calling the decorated provider, no refresh is triggered
+     *
+     * @param secretURL the secret location
+     * @return the cached secret map or null if absent or expired
+     */
+    public SecretMap getIfPresent(SecretURL secretURL) {
+        return lookup(secretURL, false);
+    }
+
+    /**
+     * Evict a secret so the next resolution calls the decorated provider
+     *
+     * @param secretURL the secret location
+     */
+    public void invalidate(SecretURL secretURL) {
+        cache.invalidate(secretURL);
+        if (negativeCache != null) {
+            negativeCache.invalidate(secretURL);
+        }
+    }
+
+    /**
+     * Evict all secrets
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+        if (negativeCache != null) {
+            negativeCache.invalidateAll();
+        }
+    }
+
+    /**
+     * @return number of cached secret maps, including expired ones not yet removed
+     */
+    public long size() {
+        return cache.size();
+    }
+
+    /**
+     * Hits and misses are counted on each resolution, replayed negative outcomes count as hits, loads are calls to the decorated provider,
+     * evictions include entries removed because of their size, weight or expiration.
+     *
+     * @return hit, miss, load and eviction counters of this cache
+     */
+    public CacheStats stats() {
+        return statsCounter.snapshot();
+    }
+
+    /**
+     * @return stale serve and background refresh counters of this cache
+     */
+    public RefreshStats refreshStats() {
+        long completed = refreshed.sum();
+        long averageNanos = completed == 0 ? 0 : refreshNanos.sum() / completed;
+        return new RefreshStats(staleServes.sum(), refreshes.sum(), refreshFailures.sum(), averageNanos, maxRefreshNanos.get());
+    }
+
+    private SecretMap lookup(SecretURL secretURL, boolean refresh) {
+        Entry entry = cache.getIfPresent(secretURL);
+        if (entry != null) {
+            long nowMillis = clock.millis();
+            if (!entry.isExpired(secretURL, nowMillis)) {
+                statsCounter.recordHits(1);
+                if (refresh && nowMillis >= entry.refreshAtMillis) {
+                    staleServes.increment();
+                    refresh(secretURL, entry);
+                }
+                return entry.secretMap;
+            }
+            if (cache.asMap().remove(secretURL, entry)) {
+                statsCounter.recordEviction();
+                entry.secretMap.destroy();
+            }
+        }
+        statsCounter.recordMisses(1);
+        return null;
+    }
+
+    private void refresh(SecretURL secretURL, Entry entry) {
+        if (pendingRefreshes.isDisposed() || !entry.refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        refreshes.increment();
+        long start = System.nanoTime();
+        super
+            .resolve(secretURL)
+            .subscribeOn(refreshScheduler)
+            .doOnEvent((secretMap, throwable) -> {
+                long elapsed = System.nanoTime() - start;
+                refreshed.increment();
+                refreshNanos.add(elapsed);
+                maxRefreshNanos.accumulate(elapsed);
+            })
+            .subscribe(
+                // unless it was invalidated or replaced meanwhile
+                secretMap -> replace(secretURL, entry, secretMap),
+                throwable -> {
+                    // served until expired, the next read will try again
+                    refreshFailures.increment();
+                    entry.refreshing.set(false);
+                },
+                () -> {
+                    // the secret does not exist anymore
+                    if (cache.asMap().remove(secretURL, entry)) {
+                        putMiss(secretURL, null);
+                    }
+                },
+                pendingRefreshes
+            );
+    }
+
+    private Miss lookupMiss(SecretURL secretURL) {
+        if (negativeCache == null) {
+            return null;
+        }
+        Miss miss = negativeCache.getIfPresent(secretURL);
+        if (miss != null) {
+            statsCounter.recordHits(1);
+        }
+        return miss;
+    }
+
+    /**
+     * @return the cached miss, null if this outcome is not cached
+     */
+    private Miss putMiss(SecretURL secretURL, Throwable error) {
+        if (negativeCache == null) {
+            return null;
+        }
+        boolean cacheable;
+        if (error == null) {
+            cacheable = negativeCaching.ifNotFound();
+        } else if (error instanceof SecretAccessDeniedException) {
+            cacheable = negativeCaching.ifDenied();
+        } else {
+            cacheable = negativeCaching.ifError();
+        }
+        if (!cacheable) {
+            return null;
+        }
+        Miss miss = new Miss(error);
+        negativeCache.put(secretURL, miss);
+        return miss;
+    }
+
+    private void put(SecretURL secretURL, SecretMap secretMap) {
+        if (negativeCache != null) {
+            negativeCache.invalidate(secretURL);
+        }
+        Entry entry = new Entry(secretMap, clock.millis(), timeToLiveMillis, refreshAhead);
+        if (!entry.isExpired(secretURL, entry.loadedAtMillis)) {
+            cache.put(secretURL, entry);
+        } else {
+            cache.invalidate(secretURL);
+        }
+    }
+
+    private void replace(SecretURL secretURL, Entry current, SecretMap secretMap) {
+        Entry entry = new Entry(secretMap, clock.millis(), timeToLiveMillis, refreshAhead);
+        boolean replaced;
+        if (!entry.isExpired(secretURL, entry.loadedAtMillis)) {
+            replaced = cache.asMap().replace(secretURL, current, entry);
+        } else {
+            // expired already, the refreshed map is not cached
+            if (cache.asMap().remove(secretURL, current)) {
+                current.secretMap.destroy();
+            }
+            replaced = false;
+        }
+        if (!replaced && secretMap != current.secretMap) {
+            // nobody else got the refreshed map
+            secretMap.destroy();
+        }
+    }
+
+    /**
+     * Destroy a map dropped by the cache, unless it is still cached, e.g. when replaced by itself
+     */
+    private void release(SecretURL secretURL, Entry removed) {
+        Entry current = cache.asMap().get(secretURL);
+        if (current == null || current.secretMap != removed.secretMap) {
+            removed.secretMap.destroy();
+        }
+    }
+
+    /**
+     * Negative outcome
+     *
+     * @param error the cached error, null if not found
+     */
+    private record Miss(Throwable error) {
+        /**
+         * Subscribers and RxJava may add suppressed exceptions to an error or change its stack trace:
+         * each replay gets its own exception, caused by the cached one.
+         * The failure that got cached is signaled the same way, so callers always see a {@link SecretAccessDeniedException}
+         * for denied accesses and a {@link SecretManagerException} for any other cached error.
+         *
+         * @return a new error of the same kind as the cached one
+         * @throws IllegalStateException if this miss is a secret not found
+         */
+        private SecretManagerException replay() {
+            if (error == null) {
+                throw new IllegalStateException("a secret not found has no error to replay");
+            }
+            return error instanceof SecretAccessDeniedException
+                ? new SecretAccessDeniedException(error.getMessage(), error)
+                : new SecretManagerException(error.getMessage(), error);
+        }
+    }
+
+    private static final class Entry {
+
+        private final SecretMap secretMap;
+        private final long expiresAtMillis;
+        private final long weight;
+        private final long loadedAtMillis;
+        private final long refreshAtMillis;
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+
+        private Entry(SecretMap secretMap, long loadedAtMillis, long timeToLiveMillis, double refreshAhead) {
+            this.secretMap = secretMap;
+            this.expiresAtMillis = secretMap.nextExpiry().map(WithExpiration::toEpochMillis).orElse(Long.MAX_VALUE);
+            this.weight = weigh(secretMap);
+            this.loadedAtMillis = loadedAtMillis;
+            long endOfLife = timeToLiveMillis > 0 ? Math.min(expiresAtMillis, loadedAtMillis + timeToLiveMillis) : expiresAtMillis;
+            if (refreshAhead > 0 && endOfLife != Long.MAX_VALUE) {
+                this.refreshAtMillis = loadedAtMillis + (long) (Math.max(0, endOfLife - loadedAtMillis) * refreshAhead);
+            } else {
+                this.refreshAtMillis = Long.MAX_VALUE;
+            }
+        }
+
+        private boolean isExpired(SecretURL secretURL, long nowMillis) {
+            if (nowMillis <= expiresAtMillis) {
+                return false;
+            }
+            if (secretURL.isKeyEmpty()) {
+                return true;
+            }
+            // only the map expiration and the expiration of the requested key matter
+            Secret secret = secretMap.get(secretURL.key());
+            return secretMap.isExpired(nowMillis) || (secret != null && secret.isExpired(nowMillis));
+        }
+
+        private static long weigh(SecretMap secretMap) {
+            long[] weight = { 0 };
+            secretMap.forEach((key, secret) -> {
+                weight[0] += key.length();
+                try {
+                    weight[0] += secret.size();
+                } catch (IllegalArgumentException e) {
+                    // invalid base64 will fail when read, only its key is weighed
+                }
+            });
+            return weight[0];
+        }
+    }
+
+    /**
+     * Counters of background refreshes
+     *
+     * @param staleServes         number of entries served while they were due for a refresh
+     * @param refreshes           number of background refreshes started
+     * @param refreshFailures     number of background refreshes that failed
+     * @param averageRefreshNanos average latency of completed refreshes, in nanoseconds
+     * @param maxRefreshNanos     latency of the longest refresh, in nanoseconds
+     */
+    public record RefreshStats(long staleServes, long refreshes, long refreshFailures, long averageRefreshNanos, long maxRefreshNanos) {}
+
+    /**
+     * Builder of {@link CachingSecretProvider}
+     */
+    public static final class Builder {
+
+        private final SecretProvider delegate;
+        private long maximumSize = DEFAULT_MAXIMUM_SIZE;
+        private long maximumWeight;
+        private int concurrencyLevel = DEFAULT_CONCURRENCY_LEVEL;
+        private Clock clock = Clock.systemUTC();
+        private Duration timeToLive;
+        private double refreshAhead;
+        private Scheduler refreshScheduler = Schedulers.io();
+        private OnErrorStrategy.ReturnEmpty negativeCaching;
+        private Duration negativeTimeToLive;
+
+        private Builder(SecretProvider delegate) {
+            this.delegate = Objects.requireNonNull(delegate);
+        }
+
+        /**
+         * @param maximumSize maximum number of cached secret maps, {@link #DEFAULT_MAXIMUM_SIZE} by default
+         * @return this builder
+         * @throws IllegalArgumentException if not positive
+         */
+        public Builder maximumSize(long maximumSize) {
+            if (maximumSize <= 0) {
+                throw new IllegalArgumentException("maximum size must be positive");
+            }
+            this.maximumSize = maximumSize;
+            return this;
+        }
+
+        /**
+         * @param maximumWeight maximum number of bytes of keys and secret values, unbounded when zero (default)
+         * @return this builder
+         * @throws IllegalArgumentException if negative
+         */
+        public Builder maximumWeight(long maximumWeight) {
+            if (maximumWeight < 0) {
+                throw new IllegalArgumentException("maximum weight cannot be negative");
+            }
+            this.maximumWeight = maximumWeight;
+            return this;
+        }
+
+        /**
+         * Number of segments the cache is split into, each with its own lock and its own share of the maximum size and weight.
+         * A higher level lowers contention between concurrent resolutions, a level of 1 gives an exact LRU order.
+         * With a maximum weight, an entry heavier than <code>maximumWeight / concurrencyLevel</code> is not cached.
+         *
+         * @param concurrencyLevel expected number of threads updating the cache concurrently,
+         *                         {@link #DEFAULT_CONCURRENCY_LEVEL} by default
+         * @return this builder
+         * @throws IllegalArgumentException if not positive
+         */
+        public Builder concurrencyLevel(int concurrencyLevel) {
+            if (concurrencyLevel <= 0) {
+                throw new IllegalArgumentException("concurrency level must be positive");
+            }
+            this.concurrencyLevel = concurrencyLevel;
+            return this;
+        }
+
+        /**
+         * @param clock clock used to check expiration, system UTC clock by default
+         * @return this builder
+         */
+        public Builder clock(Clock clock) {
+            this.clock = Objects.requireNonNull(clock);
+            return this;
+        }
+
+        /**
+         * Refresh entries in the background once a fraction of their lifetime has elapsed: the time-to-live if set,
+         * otherwise the time until they expire. Disabled by default, or at the end of the time-to-live if one is set.
+         *
+         * @param fraction fraction of the lifetime after which an entry is refreshed, greater than 0 and at most 1
+         * @return this builder
+         * @throws IllegalArgumentException if not in ]0, 1]
+         */
+        public Builder refreshAhead(double fraction) {
+            if (!(fraction > 0 && fraction <= 1)) {
+                throw new IllegalArgumentException("refresh ahead fraction must be greater than 0 and at most 1");
+            }
+            this.refreshAhead = fraction;
+            return this;
+        }
+
+        /**
+         * Time after which an entry is stale: it is still served, until it expires, while it is refreshed in the background.
+         * Typically the duration of a {@link io.gravitee.secrets.api.spec.Resolution.Type#TTL} resolution.
+         *
+         * @param timeToLive time-to-live of entries, none by default
+         * @return this builder
+         * @throws IllegalArgumentException if not positive
+         */
+        public Builder timeToLive(Duration timeToLive) {
+            if (timeToLive.toMillis() <= 0) {
+                throw new IllegalArgumentException("time-to-live must be positive");
+            }
+            this.timeToLive = timeToLive;
+            return this;
+        }
+
+        /**
+         * @param refreshScheduler scheduler on which background refreshes are subscribed, {@link Schedulers#io()} by default
+         * @return this builder
+         */
+        public Builder refreshScheduler(Scheduler refreshScheduler) {
+            this.refreshScheduler = Objects.requireNonNull(refreshScheduler);
+            return this;
+        }
+
+        /**
+         * Cache negative outcomes for a short time so that missing or failing secrets do not call the decorated provider on each resolution.
+         * Flags select outcomes to cache: secrets not found (empty result), access denied ({@link SecretAccessDeniedException})
+         * and any other error. Cached errors, including the failure that got cached, are signaled as a new
+         * {@link SecretManagerException}, or {@link SecretAccessDeniedException}, caused by the original one. Disabled by default.
+         *
+         * @param returnEmpty flags of outcomes to cache, typically those of the {@link OnErrorStrategy} of the secret
+         * @param timeToLive  time during which outcomes are replayed
+         * @return this builder
+         * @throws IllegalArgumentException if the time-to-live is not positive
+         */
+        public Builder negativeCaching(OnErrorStrategy.ReturnEmpty returnEmpty, Duration timeToLive) {
+            if (timeToLive.toMillis() <= 0) {
+                throw new IllegalArgumentException("negative caching time-to-live must be positive");
+            }
+            this.negativeCaching = Objects.requireNonNull(returnEmpty);
+            this.negativeTimeToLive = timeToLive;
+            return this;
+        }
+
+        public CachingSecretProvider build() {
+            return new CachingSecretProvider(this);
+        }
+    }
+}
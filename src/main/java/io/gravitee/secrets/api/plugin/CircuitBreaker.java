@@ -0,0 +1,289 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.secrets.api.plugin;
+
+import io.reactivex.rxjava3.core.Flowable;
+import io.reactivex.rxjava3.processors.PublishProcessor;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Count-based circuit breaker: stops calls to a failing or slow secret manager and lets a few probes through after a while.
+ * <ul>
+ *     <li>{@link State#CLOSED}: calls are allowed, outcomes of the last calls are recorded in a sliding window.
+ *     Once it holds a minimum number of calls, the breaker opens if the rate of failures or the rate of slow calls reaches its threshold.</li>
+ *     <li>{@link State#OPEN}: calls are rejected until the open duration has elapsed, then the breaker is half-open.</li>
+ *     <li>{@link State#HALF_OPEN}: a limited number of probe calls are allowed, the breaker closes if they all succeed quickly,
+ *     it opens again at the first failure or slow call.</li>
+ * </ul>
+ * Callers must call {@link #tryAcquire()} before a call, and then exactly one of {@link #onSuccess(long, long)},
+ * {@link #onError(long, long)} or {@link #onCancel(long)} with the returned permit when it is allowed.
+ * Permits belong to the state in which they were acquired: outcomes of calls allowed before the last transition are ignored,
+ * so a slow call allowed while closed cannot close or reopen a half-open breaker.
+ * All methods are thread-safe, transitions are published in the order they happen, outside of the breaker lock.
+ *
+ * @author GraviteeSource Team
+ */
+public final class CircuitBreaker {
+
+    /**
+     * Permit returned by {@link #tryAcquire()} when the call is rejected
+     */
+    public static final long REJECTED = -1;
+
+    private static final byte OUTCOME_FAILURE = 1;
+    private static final byte OUTCOME_SLOW = 2;
+
+    private final Config config;
+    private final Clock clock;
+    private final PublishProcessor<Transition> transitions = PublishProcessor.create();
+    // transitions are queued under the lock and published by a single thread at a time
+    private final Queue<Transition> pendingTransitions = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger publishing = new AtomicInteger();
+    // outcomes of the last calls in closed state, a ring of OUTCOME_* flags
+    private final byte[] window;
+    private int windowIndex;
+    private int windowCount;
+    private int windowFailures;
+    private int windowSlowCalls;
+    private State state = State.CLOSED;
+    // incremented on each transition, permits are the generation in which they were acquired
+    private long generation;
+    private long openedAtMillis;
+    private int probesLeft;
+    private int probeSuccesses;
+
+    public CircuitBreaker(Config config, Clock clock) {
+        this.config = Objects.requireNonNull(config);
+        this.clock = Objects.requireNonNull(clock);
+        this.window = new byte[config.windowSize()];
+    }
+
+    /**
+     * @return the current state, an open breaker becomes half-open on the next {@link #tryAcquire()} after the open duration
+     */
+    public synchronized State state() {
+        return state;
+    }
+
+    /**
+     * @return state transitions, as they happen
+     */
+    public Flowable<Transition> transitions() {
+        return transitions;
+    }
+
+    /**
+     * @return a permit to pass to the outcome of the call if it is allowed, {@link #REJECTED} otherwise
+     */
+    public long tryAcquire() {
+        boolean transitioned = false;
+        long permit = REJECTED;
+        synchronized (this) {
+            if (state == State.OPEN && clock.millis() - openedAtMillis >= config.openDuration().toMillis()) {
+                transitionTo(State.HALF_OPEN);
+                transitioned = true;
+            }
+            if (state == State.CLOSED || (state == State.HALF_OPEN && probesLeft > 0)) {
+                if (state == State.HALF_OPEN) {
+                    probesLeft--;
+                }
+                permit = generation;
+            }
+        }
+        if (transitioned) {
+            publish();
+        }
+        return permit;
+    }
+
+    /**
+     * @param permit         permit of the call
+     * @param durationMillis duration of the successful call
+     */
+    public void onSuccess(long permit, long durationMillis) {
+        record(permit, false, durationMillis >= config.slowCallDuration().toMillis());
+    }
+
+    /**
+     * @param permit         permit of the call
+     * @param durationMillis duration of the failed call
+     */
+    public void onError(long permit, long durationMillis) {
+        record(permit, true, durationMillis >= config.slowCallDuration().toMillis());
+    }
+
+    /**
+     * The call was cancelled, its outcome is unknown and not recorded
+     *
+     * @param permit permit of the call
+     */
+    public synchronized void onCancel(long permit) {
+        if (permit == generation && state == State.HALF_OPEN) {
+            probesLeft++;
+        }
+    }
+
+    private void record(long permit, boolean failure, boolean slow) {
+        boolean transitioned = false;
+        synchronized (this) {
+            if (permit != generation) {
+                // outcome of a call allowed in a previous state
+                return;
+            }
+            switch (state) {
+                case CLOSED -> {
+                    if (windowCount == window.length) {
+                        byte evicted = window[windowIndex];
+                        windowFailures -= evicted & OUTCOME_FAILURE;
+                        windowSlowCalls -= (evicted & OUTCOME_SLOW) >> 1;
+                    } else {
+                        windowCount++;
+                    }
+                    window[windowIndex] = (byte) ((failure ? OUTCOME_FAILURE : 0) | (slow ? OUTCOME_SLOW : 0));
+                    windowIndex = (windowIndex + 1) % window.length;
+                    windowFailures += failure ? 1 : 0;
+                    windowSlowCalls += slow ? 1 : 0;
+                    if (
+                        windowCount >= config.minimumCalls() &&
+                        (
+                            windowFailures >= config.failureRateThreshold() * windowCount ||
+                            windowSlowCalls >= config.slowCallRateThreshold() * windowCount
+                        )
+                    ) {
+                        transitionTo(State.OPEN);
+                        transitioned = true;
+                    }
+                }
+                case HALF_OPEN -> {
+                    if (failure || slow) {
+                        transitionTo(State.OPEN);
+                        transitioned = true;
+                    } else if (++probeSuccesses == config.halfOpenProbes()) {
+                        transitionTo(State.CLOSED);
+                        transitioned = true;
+                    }
+                }
+                // no permit is acquired while open
+                case OPEN -> {}
+            }
+        }
+        if (transitioned) {
+            publish();
+        }
+    }
+
+    private void transitionTo(State to) {
+        pendingTransitions.add(new Transition(state, to, clock.instant()));
+        state = to;
+        generation++;
+        switch (to) {
+            case OPEN -> openedAtMillis = clock.millis();
+            case HALF_OPEN -> {
+                probesLeft = config.halfOpenProbes();
+                probeSuccesses = 0;
+            }
+            case CLOSED -> {
+                windowIndex = 0;
+                windowCount = 0;
+                windowFailures = 0;
+                windowSlowCalls = 0;
+            }
+        }
+    }
+
+    private void publish() {
+        if (publishing.getAndIncrement() != 0) {
+            // the publishing thread will also publish the transitions queued by this one
+            return;
+        }
+        int missed = 1;
+        do {
+            Transition transition;
+            while ((transition = pendingTransitions.poll()) != null) {
+                transitions.onNext(transition);
+            }
+            missed = publishing.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN,
+    }
+
+    /**
+     * A change of state
+     *
+     * @param from previous state
+     * @param to   new state
+     * @param at   when it changed
+     */
+    public record Transition(State from, State to, Instant at) {}
+
+    /**
+     * Configuration of a {@link CircuitBreaker}
+     *
+     * @param windowSize            number of last calls which outcome is recorded in closed state
+     * @param minimumCalls          minimum number of recorded calls before rates are evaluated
+     * @param failureRateThreshold  rate of failed calls, between 0 and 1, from which the breaker opens
+     * @param slowCallRateThreshold rate of slow calls, between 0 and 1, from which the breaker opens
+     * @param slowCallDuration      duration from which a call is slow
+     * @param openDuration          time during which calls are rejected before probing
+     * @param halfOpenProbes        number of calls allowed in half-open state, that must all succeed to close the breaker
+     */
+    public record Config(
+        int windowSize,
+        int minimumCalls,
+        double failureRateThreshold,
+        double slowCallRateThreshold,
+        Duration slowCallDuration,
+        Duration openDuration,
+        int halfOpenProbes
+    ) {
+        /**
+         * Opens when half of 10 to 20 last calls fail or all of them take 5 seconds or more, then probes 3 calls after 30 seconds
+         */
+        public static final Config DEFAULT = new Config(20, 10, 0.5, 1, Duration.ofSeconds(5), Duration.ofSeconds(30), 3);
+
+        public Config {
+            boolean ok =
+                windowSize > 0 &&
+                minimumCalls > 0 &&
+                minimumCalls <= windowSize &&
+                failureRateThreshold > 0 &&
+                failureRateThreshold <= 1 &&
+                slowCallRateThreshold > 0 &&
+                slowCallRateThreshold <= 1 &&
+                slowCallDuration != null &&
+                slowCallDuration.toMillis() > 0 &&
+                openDuration != null &&
+                !openDuration.isNegative() &&
+                halfOpenProbes > 0;
+            if (!ok) {
+                throw new IllegalArgumentException(
+                    "circuit breaker needs a positive window size, minimum calls and probes, thresholds in ]0, 1] and positive durations"
+                );
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.secrets.api.plugin;
+
+import io.gravitee.secrets.api.core.SecretMap;
+import io.gravitee.secrets.api.core.SecretURL;
+import io.reactivex.rxjava3.core.Flowable;
+import io.reactivex.rxjava3.core.Maybe;
+import io.reactivex.rxjava3.disposables.Disposable;
+import io.reactivex.rxjava3.subjects.MaybeSubject;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link SecretProvider} decorator coalescing concurrent resolutions of a same secret into a single call to the decorated provider.
+ * <p>
+ * Resolutions of equal {@link SecretURL} (provider and path) subscribed while a resolution is in flight share its result,
+ * value, empty or error. The call is forgotten before its result is delivered, the next resolution calls the decorated provider again.
+ * Disposing a resolution does not affect the others, the call is only cancelled when all of them are disposed.
+ * Batch resolutions are split into single resolutions that are coalesced the same way.
+ *
+ * @author GraviteeSource Team
+ */
+public final class CoalescingSecretProvider extends DelegatingSecretProvider {
+
+    private final ConcurrentMap<SecretURL, Maybe<SecretMap>> inFlight = new ConcurrentHashMap<>();
+
+    public CoalescingSecretProvider(SecretProvider delegate) {
+        super(delegate);
+    }
+
+    @Override
+    public Maybe<SecretMap> resolve(SecretURL secretURL) {
+        return Maybe.defer(() -> inFlight.computeIfAbsent(secretURL, this::share));
+    }
+
+    /**
+     * Each secret of the batch is resolved with {@link #resolve(SecretURL)}, so that it joins or is joined by concurrent resolutions.
+     */
+    @Override
+    public Flowable<Map.Entry<SecretURL, SecretMap>> resolveAll(Collection<SecretURL> secretURLs, int maxConcurrency) {
+        return resolveEach(secretURLs, maxConcurrency);
+    }
+
+    /**
+     * @return number of resolutions in flight
+     */
+    public int inFlight() {
+        return inFlight.size();
+    }
+
+    private Maybe<SecretMap> share(SecretURL secretURL) {
+        return new Call(secretURL).shared;
+    }
+
+    /**
+     * A call to the decorated provider shared by its subscribers. The result is replayed to subscribers arriving while it terminates,
+     * the call is cancelled when all subscribers are disposed before it terminates.
+     */
+    private final class Call {
+
+        private final SecretURL secretURL;
+        private final MaybeSubject<SecretMap> result = MaybeSubject.create();
+        private final Maybe<SecretMap> shared = Maybe.defer(this::subscribe);
+        // -1 once cancelled
+        private final AtomicInteger subscribers = new AtomicInteger();
+        private final AtomicBoolean started = new AtomicBoolean();
+        private volatile Disposable upstream;
+
+        private Call(SecretURL secretURL) {
+            this.secretURL = secretURL;
+        }
+
+        private Maybe<SecretMap> subscribe() {
+            int count;
+            do {
+                count = subscribers.get();
+                if (count < 0) {
+                    // got this call from the map before it was cancelled, join or start a newer one
+                    return resolve(secretURL);
+                }
+            } while (!subscribers.compareAndSet(count, count + 1));
+            if (started.compareAndSet(false, true)) {
+                upstream =
+                    delegate()
+                        .resolve(secretURL)
+                        // removed before the result is delivered, so that no subscriber can get this call once over
+                        .doOnEvent((secretMap, throwable) -> inFlight.remove(secretURL, shared))
+                        .subscribe(result::onSuccess, result::onError, result::onComplete);
+            }
+            return result.doOnDispose(this::release);
+        }
+
+        private void release() {
+            if (subscribers.decrementAndGet() == 0 && !isTerminated() && subscribers.compareAndSet(0, -1)) {
+                // only this call is removed, not a newer one for the same URL
+                inFlight.remove(secretURL, shared);
+                Disposable disposable = upstream;
+                if (disposable != null) {
+                    disposable.dispose();
+                }
+            }
+        }
+
+        private boolean isTerminated() {
+            return result.hasValue() || result.hasComplete() || result.hasThrowable();
+        }
+    }
+}
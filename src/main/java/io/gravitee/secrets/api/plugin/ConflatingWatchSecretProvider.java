@@ -0,0 +1,146 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.secrets.api.plugin;
+
+import io.gravitee.secrets.api.core.SecretEvent;
+import io.gravitee.secrets.api.core.SecretURL;
+import io.reactivex.rxjava3.core.BackpressureOverflowStrategy;
+import io.reactivex.rxjava3.core.Flowable;
+import io.reactivex.rxjava3.core.Scheduler;
+import io.reactivex.rxjava3.schedulers.Schedulers;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link SecretProvider} decorator conflating bursts of watched events, so consumers reload a secret once per burst instead of once per event.
+ * <p>
+ * Events of a watch are buffered until no event is received during a quiet period, or at most for a maximum delay
+ * after the first event of the burst if events keep coming, then they are conflated into at most one event describing the latest state:
+ * <ul>
+ *     <li>successive creations and updates become the latest one</li>
+ *     <li>a deletion followed by a creation becomes an update</li>
+ *     <li>a creation followed by a deletion cancels out</li>
+ * </ul>
+ * Conflated events are then held in a bounded buffer for slow consumers, when it is full the oldest event is dropped.
+ * <p>
+ * {@link #conflated()} and {@link #dropped()} count events of all watches of this decorator, whatever the secret.
+ *
+ * @author GraviteeSource Team
+ */
+public final class ConflatingWatchSecretProvider extends DelegatingSecretProvider {
+
+    public static final Duration DEFAULT_QUIET_PERIOD = Duration.ofMillis(500);
+    public static final Duration DEFAULT_MAX_DELAY = Duration.ofSeconds(5);
+    public static final int DEFAULT_BUFFER_SIZE = 128;
+
+    private static final long NO_BURST = Long.MIN_VALUE;
+
+    private final long quietPeriodMillis;
+    private final long maxDelayMillis;
+    private final int bufferSize;
+    private final Scheduler scheduler;
+    private final AtomicLong conflated = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * Create a decorator with {@link #DEFAULT_QUIET_PERIOD}, {@link #DEFAULT_MAX_DELAY} and {@link #DEFAULT_BUFFER_SIZE}
+     *
+     * @param delegate the provider to decorate
+     */
+    public ConflatingWatchSecretProvider(SecretProvider delegate) {
+        this(delegate, DEFAULT_QUIET_PERIOD, DEFAULT_MAX_DELAY, DEFAULT_BUFFER_SIZE, Schedulers.computation());
+    }
+
+    /**
+     * @param delegate    the provider to decorate
+     * @param quietPeriod time without events after which buffered events are conflated and emitted
+     * @param maxDelay    maximum time events are buffered during a continuous burst
+     * @param bufferSize  maximum number of conflated events waiting for a consumer
+     * @param scheduler   scheduler used to time the quiet period and the maximum delay
+     * @throws IllegalArgumentException if a duration or the buffer size is not positive
+     */
+    public ConflatingWatchSecretProvider(SecretProvider delegate, Duration quietPeriod, Duration maxDelay, int bufferSize, Scheduler scheduler) {
+        super(delegate);
+        this.quietPeriodMillis = quietPeriod.toMillis();
+        this.maxDelayMillis = maxDelay.toMillis();
+        if (quietPeriodMillis <= 0 || maxDelayMillis <= 0 || bufferSize <= 0) {
+            throw new IllegalArgumentException("quiet period, max delay and buffer size must be positive");
+        }
+        this.bufferSize = bufferSize;
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    public Flowable<SecretEvent> watch(SecretURL secretURL) {
+        return super
+            .watch(secretURL)
+            .publish(events -> events.buffer(burstEnds(events)))
+            .concatMapIterable(this::conflate)
+            .onBackpressureBuffer(bufferSize, dropped::incrementAndGet, BackpressureOverflowStrategy.DROP_OLDEST);
+    }
+
+    /**
+     * @return number of events that were merged into another one or cancelled out, across all watches
+     */
+    public long conflated() {
+        return conflated.get();
+    }
+
+    /**
+     * @return number of conflated events dropped because a consumer was too slow, across all watches
+     */
+    public long dropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Signals the end of each burst of events: after the quiet period, or once the maximum delay has elapsed since its first event.
+     * Each event replaces the pending timer by one for the nearest of both deadlines.
+     */
+    private Flowable<Long> burstEnds(Flowable<SecretEvent> events) {
+        AtomicLong burstStartMillis = new AtomicLong(NO_BURST);
+        return events
+            .switchMap(event -> {
+                long now = scheduler.now(TimeUnit.MILLISECONDS);
+                burstStartMillis.compareAndSet(NO_BURST, now);
+                long untilMaxDelay = Math.max(0, burstStartMillis.get() + maxDelayMillis - now);
+                return Flowable.timer(Math.min(quietPeriodMillis, untilMaxDelay), TimeUnit.MILLISECONDS, scheduler);
+            })
+            .doOnNext(end -> burstStartMillis.set(NO_BURST));
+    }
+
+    private List<SecretEvent> conflate(List<SecretEvent> events) {
+        SecretEvent latest = null;
+        for (SecretEvent event : events) {
+            latest = conflate(latest, event);
+        }
+        conflated.addAndGet(events.size() - (latest == null ? 0 : 1));
+        return latest == null ? List.of() : List.of(latest);
+    }
+
+    private static SecretEvent conflate(SecretEvent previous, SecretEvent next) {
+        if (previous == null) {
+            return next;
+        }
+        if (next.type() == SecretEvent.Type.DELETED) {
+            return previous.type() == SecretEvent.Type.CREATED ? null : next;
+        }
+        SecretEvent.Type type = previous.type() == SecretEvent.Type.CREATED ? SecretEvent.Type.CREATED : SecretEvent.Type.UPDATED;
+        return type == next.type() ? next : new SecretEvent(type, next.secretMap());
+    }
+}
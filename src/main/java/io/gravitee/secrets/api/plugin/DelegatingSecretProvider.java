@@ -0,0 +1,92 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.secrets.api.plugin;
+
+import io.gravitee.secrets.api.core.SecretEvent;
+import io.gravitee.secrets.api.core.SecretMap;
+import io.gravitee.secrets.api.core.SecretURL;
+import io.gravitee.secrets.api.errors.SecretManagerException;
+import io.reactivex.rxjava3.core.Flowable;
+import io.reactivex.rxjava3.core.Maybe;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Base class of {@link SecretProvider} decorators: all calls are forwarded to the delegate,
+ * subclasses override what they decorate. {@link #resolveAll(Collection, int)} is forwarded as well to keep batch implementations
+ * of the delegate, decorators of {@link #resolve(SecretURL)} that must see each resolution of a batch should override it
+ * with {@link #resolveEach(Collection, int)}.
+ *
+ * @author GraviteeSource Team
+ */
+public abstract class DelegatingSecretProvider implements SecretProvider {
+
+    private final SecretProvider delegate;
+
+    protected DelegatingSecretProvider(SecretProvider delegate) {
+        this.delegate = Objects.requireNonNull(delegate);
+    }
+
+    /**
+     * @return the decorated provider
+     */
+    public SecretProvider delegate() {
+        return delegate;
+    }
+
+    @Override
+    public Maybe<SecretMap> resolve(SecretURL secretURL) {
+        return delegate.resolve(secretURL);
+    }
+
+    @Override
+    public Flowable<Map.Entry<SecretURL, SecretMap>> resolveAll(Collection<SecretURL> secretURLs, int maxConcurrency) {
+        return delegate.resolveAll(secretURLs, maxConcurrency);
+    }
+
+    /**
+     * Resolve several secrets through {@link #resolve(SecretURL)} of this provider, like the default
+     * {@link SecretProvider#resolveAll(Collection, int)} does, instead of forwarding the batch to the delegate.
+     *
+     * @param secretURLs     where the secrets are located
+     * @param maxConcurrency maximum number of secrets resolved at the same time
+     * @return a {@link Flowable} of URL and secret map pairs, one per secret found
+     */
+    protected final Flowable<Map.Entry<SecretURL, SecretMap>> resolveEach(Collection<SecretURL> secretURLs, int maxConcurrency) {
+        return Flowable
+            .fromIterable(new LinkedHashSet<>(secretURLs))
+            .flatMapMaybe(secretURL -> resolve(secretURL).map(secretMap -> Map.entry(secretURL, secretMap)), true, maxConcurrency);
+    }
+
+    @Override
+    public Flowable<SecretEvent> watch(SecretURL secretURL) {
+        return delegate.watch(secretURL);
+    }
+
+    @Override
+    public SecretProvider start() throws SecretManagerException {
+        delegate.start();
+        return this;
+    }
+
+    @Override
+    public SecretProvider stop() {
+        delegate.stop();
+        return this;
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.secrets.api.plugin;
+
+import io.gravitee.secrets.api.core.SecretMap;
+import io.gravitee.secrets.api.core.SecretURL;
+import io.gravitee.secrets.api.errors.BulkheadFullException;
+import io.gravitee.secrets.api.errors.CircuitBreakerOpenException;
+import io.gravitee.secrets.api.errors.SecretAccessDeniedException;
+import io.gravitee.secrets.api.errors.SecretManagerException;
+import io.reactivex.rxjava3.core.Flowable;
+import io.reactivex.rxjava3.core.Maybe;
+import io.reactivex.rxjava3.core.Scheduler;
+import io.reactivex.rxjava3.schedulers.Schedulers;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link SecretProvider} decorator protecting the gateway from a degraded secret manager:
+ * <ul>
+ *     <li>a {@link CircuitBreaker} rejects calls when too many fail or are too slow, see {@link CircuitBreaker.Config}.
+ *     Access denied errors are not failures of the secret manager and are recorded as successes.</li>
+ *     <li>a bulkhead rejects calls beyond a maximum number of concurrent calls instead of queuing them.</li>
+ *     <li>a timeout bounds how long a call holds its place in the bulkhead:
+ *     calls that take longer are cancelled and recorded as failures.</li>
+ * </ul>
+ * Rejected calls fail immediately with a {@link CircuitBreakerOpenException} or a {@link BulkheadFullException}.
+ * Other errors, timeouts included, are signaled as {@link SecretManagerException}, wrapped if need be.
+ * A {@link #resolveAll(Collection, int)} call counts as a single call. Watches are long-lived and not protected.
+ *
+ * @author GraviteeSource Team
+ */
+public final class ResilientSecretProvider extends DelegatingSecretProvider {
+
+    public static final int DEFAULT_MAX_CONCURRENT_CALLS = 16;
+    public static final Duration DEFAULT_CALL_TIMEOUT = Duration.ofSeconds(10);
+
+    private final CircuitBreaker circuitBreaker;
+    private final int maxConcurrentCalls;
+    private final long callTimeoutMillis;
+    private final Clock clock;
+    private final Scheduler scheduler;
+    private final AtomicInteger concurrentCalls = new AtomicInteger();
+
+    /**
+     * Create a decorator with {@link CircuitBreaker.Config#DEFAULT}, {@link #DEFAULT_MAX_CONCURRENT_CALLS} and {@link #DEFAULT_CALL_TIMEOUT}
+     *
+     * @param delegate the provider to decorate
+     */
+    public ResilientSecretProvider(SecretProvider delegate) {
+        this(delegate, CircuitBreaker.Config.DEFAULT, DEFAULT_MAX_CONCURRENT_CALLS, Clock.systemUTC());
+    }
+
+    /**
+     * Create a decorator with {@link #DEFAULT_CALL_TIMEOUT}
+     *
+     * @param delegate           the provider to decorate
+     * @param config             configuration of the circuit breaker
+     * @param maxConcurrentCalls maximum number of concurrent calls to the decorated provider
+     * @param clock              clock used to time calls and the open state
+     * @throws IllegalArgumentException if the maximum of concurrent calls is not positive
+     */
+    public ResilientSecretProvider(SecretProvider delegate, CircuitBreaker.Config config, int maxConcurrentCalls, Clock clock) {
+        this(delegate, config, maxConcurrentCalls, DEFAULT_CALL_TIMEOUT, clock, Schedulers.computation());
+    }
+
+    /**
+     * @param delegate           the provider to decorate
+     * @param config             configuration of the circuit breaker
+     * @param maxConcurrentCalls maximum number of concurrent calls to the decorated provider
+     * @param callTimeout        maximum duration of a call, a whole batch for {@link #resolveAll(Collection, int)}
+     * @param clock              clock used to time calls and the open state
+     * @param scheduler          scheduler on which timeouts are signaled
+     * @throws IllegalArgumentException if the maximum of concurrent calls or the timeout is not positive
+     */
+    public ResilientSecretProvider(
+        SecretProvider delegate,
+        CircuitBreaker.Config config,
+        int maxConcurrentCalls,
+        Duration callTimeout,
+        Clock clock,
+        Scheduler scheduler
+    ) {
+        super(delegate);
+        if (maxConcurrentCalls <= 0) {
+            throw new IllegalArgumentException("max concurrent calls must be positive");
+        }
+        if (callTimeout.toMillis() <= 0) {
+            throw new IllegalArgumentException("call timeout must be positive");
+        }
+        this.circuitBreaker = new CircuitBreaker(config, clock);
+        this.maxConcurrentCalls = maxConcurrentCalls;
+        this.callTimeoutMillis = callTimeout.toMillis();
+        this.clock = clock;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * @return the circuit breaker of this provider, to observe its state
+     */
+    public CircuitBreaker circuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * @return number of calls in progress
+     */
+    public int concurrentCalls() {
+        return concurrentCalls.get();
+    }
+
+    @Override
+    public Maybe<SecretMap> resolve(SecretURL secretURL) {
+        return Maybe.defer(() -> {
+            Call call = new Call();
+            SecretManagerException rejected = call.acquire();
+            if (rejected != null) {
+                return Maybe.error(rejected);
+            }
+            Maybe<SecretMap> resolution;
+            try {
+                resolution = super.resolve(secretURL);
+            } catch (RuntimeException e) {
+                return Maybe.error(call.abort(e));
+            }
+            return resolution
+                .timeout(callTimeoutMillis, TimeUnit.MILLISECONDS, scheduler)
+                .doOnEvent((secretMap, throwable) -> call.complete(throwable))
+                .doOnDispose(call::cancel)
+                .doFinally(concurrentCalls::decrementAndGet)
+                .onErrorResumeNext(throwable -> Maybe.error(asSecretManagerException(throwable)));
+        });
+    }
+
+    @Override
+    public Flowable<Map.Entry<SecretURL, SecretMap>> resolveAll(Collection<SecretURL> secretURLs, int maxConcurrency) {
+        return Flowable.defer(() -> {
+            Call call = new Call();
+            SecretManagerException rejected = call.acquire();
+            if (rejected != null) {
+                return Flowable.error(rejected);
+            }
+            // a single deadline for the whole batch, whatever the number of entries
+            long deadlineMillis = scheduler.now(TimeUnit.MILLISECONDS) + callTimeoutMillis;
+            Flowable<Long> deadline = Flowable.defer(() ->
+                Flowable.timer(Math.max(0, deadlineMillis - scheduler.now(TimeUnit.MILLISECONDS)), TimeUnit.MILLISECONDS, scheduler)
+            );
+            Flowable<Map.Entry<SecretURL, SecretMap>> resolutions;
+            try {
+                resolutions = super.resolveAll(secretURLs, maxConcurrency);
+            } catch (RuntimeException e) {
+                return Flowable.error(call.abort(e));
+            }
+            return resolutions
+                .timeout(deadline, entry -> deadline)
+                .doOnComplete(() -> call.complete(null))
+                .doOnError(call::complete)
+                .doOnCancel(call::cancel)
+                .doFinally(concurrentCalls::decrementAndGet)
+                .onErrorResumeNext(throwable -> Flowable.error(asSecretManagerException(throwable)));
+        });
+    }
+
+    private static SecretManagerException asSecretManagerException(Throwable throwable) {
+        return throwable instanceof SecretManagerException secretManagerException
+            ? secretManagerException
+            : new SecretManagerException(throwable);
+    }
+
+    /**
+     * Acquires a place in the bulkhead and a circuit breaker permit, then records the outcome of the allowed call exactly once.
+     * A timeout is a {@link TimeoutException} and is recorded as a failure.
+     */
+    private final class Call {
+
+        private final long startMillis = clock.millis();
+        private final AtomicBoolean done = new AtomicBoolean();
+        private long permit;
+
+        /**
+         * @return null if the call is allowed, the reason of its rejection otherwise
+         */
+        private SecretManagerException acquire() {
+            int calls;
+            do {
+                calls = concurrentCalls.get();
+                if (calls >= maxConcurrentCalls) {
+                    return new BulkheadFullException(
+                        "maximum of %d concurrent calls to secret provider reached".formatted(maxConcurrentCalls)
+                    );
+                }
+            } while (!concurrentCalls.compareAndSet(calls, calls + 1));
+            permit = circuitBreaker.tryAcquire();
+            if (permit == CircuitBreaker.REJECTED) {
+                concurrentCalls.decrementAndGet();
+                return new CircuitBreakerOpenException("secret provider circuit breaker is open");
+            }
+            return null;
+        }
+
+        private void complete(Throwable throwable) {
+            if (done.compareAndSet(false, true)) {
+                long durationMillis = clock.millis() - startMillis;
+                if (throwable == null || throwable instanceof SecretAccessDeniedException) {
+                    circuitBreaker.onSuccess(permit, durationMillis);
+                } else {
+                    circuitBreaker.onError(permit, durationMillis);
+                }
+            }
+        }
+
+        /**
+         * The decorated provider threw instead of returning an error: record the failure and release the call
+         *
+         * @return the error to signal
+         */
+        private SecretManagerException abort(RuntimeException error) {
+            complete(error);
+            concurrentCalls.decrementAndGet();
+            return asSecretManagerException(error);
+        }
+
+        private void cancel() {
+            if (done.compareAndSet(false, true)) {
+                circuitBreaker.onCancel(permit);
+            }
+        }
+    }
+}
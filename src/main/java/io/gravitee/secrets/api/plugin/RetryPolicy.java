@@ -0,0 +1,128 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.secrets.api.plugin;
+
+import io.gravitee.secrets.api.errors.CircuitBreakerOpenException;
+import io.gravitee.secrets.api.errors.SecretAccessDeniedException;
+import io.gravitee.secrets.api.errors.SecretManagerException;
+import io.gravitee.secrets.api.errors.SecretProviderUnavailableException;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Predicate;
+import java.util.random.RandomGenerator;
+
+/**
+ * Retry policy of {@link RetryingSecretProvider}: exponential backoff with full jitter, bounded by a maximum elapsed time.
+ * <p>
+ * The n-th retry (starting at 0) waits a random delay between 0 and <code>min(maxBackoff, initialBackoff * multiplier^n)</code>.
+ * A retry is not attempted if it would happen after the maximum elapsed time since the first attempt, the last error is signaled instead.
+ *
+ * @param initialBackoff maximum delay before the first retry
+ * @param maxBackoff     maximum delay before any retry
+ * @param multiplier     growth of the maximum delay from one retry to the next, at least 1
+ * @param maxElapsed     time after the first attempt beyond which no retry is attempted
+ * @param retryable      classifier of errors worth a retry, {@link #isTransient(Throwable)} by default
+ * @author GraviteeSource Team
+ */
+public record RetryPolicy(
+    Duration initialBackoff,
+    Duration maxBackoff,
+    double multiplier,
+    Duration maxElapsed,
+    Predicate<? super Throwable> retryable
+) {
+    /**
+     * Retries transient errors from 100 milliseconds up to 10 seconds apart, for 30 seconds
+     */
+    public static final RetryPolicy DEFAULT = new RetryPolicy(
+        Duration.ofMillis(100),
+        Duration.ofSeconds(10),
+        2,
+        Duration.ofSeconds(30),
+        RetryPolicy::isTransient
+    );
+
+    public RetryPolicy {
+        boolean ok =
+            initialBackoff != null &&
+            initialBackoff.toMillis() > 0 &&
+            maxBackoff != null &&
+            maxBackoff.compareTo(initialBackoff) >= 0 &&
+            multiplier >= 1 &&
+            maxElapsed != null &&
+            !maxElapsed.isNegative() &&
+            retryable != null;
+        if (!ok) {
+            throw new IllegalArgumentException(
+                "retry policy needs a positive initial backoff, a max backoff not below it, a multiplier of at least 1, a non-negative max elapsed time and a classifier"
+            );
+        }
+    }
+
+    /**
+     * @param retryable classifier of errors worth a retry
+     * @return a copy of this policy with another classifier
+     */
+    public RetryPolicy withRetryable(Predicate<? super Throwable> retryable) {
+        return new RetryPolicy(initialBackoff, maxBackoff, multiplier, maxElapsed, retryable);
+    }
+
+    /**
+     * @param retry index of the retry, starting at 0
+     * @return the maximum delay before this retry in milliseconds
+     */
+    public long maxBackoffMillis(int retry) {
+        double backoff = initialBackoff.toMillis() * Math.pow(multiplier, retry);
+        return (long) Math.min(backoff, maxBackoff.toMillis());
+    }
+
+    /**
+     * @param retry  index of the retry, starting at 0
+     * @param random random generator to pick the delay
+     * @return a random delay before this retry in milliseconds, between 0 and {@link #maxBackoffMillis(int)}
+     */
+    public long backoffMillis(int retry, RandomGenerator random) {
+        return random.nextLong(maxBackoffMillis(retry) + 1);
+    }
+
+    /**
+     * Default classifier: an error is transient if the secret manager is unavailable, or on I/O errors and timeouts.
+     * A {@link SecretManagerException} without cause is a failure reported by the secret manager and considered transient,
+     * while denied accesses and open circuit breakers are not: a retry would fail the same way.
+     * Other errors are considered bugs or misconfigurations unless caused by a transient error.
+     *
+     * @param throwable an error
+     * @return true if a retry may succeed
+     */
+    public static boolean isTransient(Throwable throwable) {
+        if (throwable instanceof SecretAccessDeniedException || throwable instanceof CircuitBreakerOpenException) {
+            return false;
+        }
+        if (
+            throwable instanceof SecretProviderUnavailableException ||
+            throwable instanceof IOException ||
+            throwable instanceof TimeoutException
+        ) {
+            return true;
+        }
+        Throwable cause = throwable.getCause();
+        if (throwable instanceof SecretManagerException && cause == null) {
+            return true;
+        }
+        return cause != null && cause != throwable && isTransient(cause);
+    }
+}
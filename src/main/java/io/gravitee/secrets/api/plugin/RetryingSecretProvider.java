@@ -0,0 +1,152 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.secrets.api.plugin;
+
+import io.gravitee.secrets.api.core.SecretEvent;
+import io.gravitee.secrets.api.core.SecretMap;
+import io.gravitee.secrets.api.core.SecretURL;
+import io.reactivex.rxjava3.core.Flowable;
+import io.reactivex.rxjava3.core.Maybe;
+import io.reactivex.rxjava3.core.Scheduler;
+import io.reactivex.rxjava3.schedulers.Schedulers;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.random.RandomGenerator;
+
+/**
+ * {@link SecretProvider} decorator retrying failed resolutions and keeping watches alive, according to a {@link RetryPolicy}.
+ * <ul>
+ *     <li>a resolution failing with a retryable error is retried after a backoff, until the policy's maximum elapsed time.</li>
+ *     <li>a watch failing with a retryable error or completing is re-subscribed after a backoff. The backoff and the elapsed
+ *     time are reset by each event, so that only consecutive failures count. A watch that keeps completing without events
+ *     completes once the maximum elapsed time is reached.</li>
+ * </ul>
+ * Batch resolutions are forwarded as is: retrying a batch would resolve again the secrets already emitted.
+ * When combined with a {@link ResilientSecretProvider}, this decorator must wrap it so that each retry is guarded.
+ *
+ * @author GraviteeSource Team
+ */
+public final class RetryingSecretProvider extends DelegatingSecretProvider {
+
+    private final RetryPolicy policy;
+    private final Scheduler scheduler;
+    private final Supplier<? extends RandomGenerator> random;
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong resubscriptions = new AtomicLong();
+
+    /**
+     * Create a decorator with {@link RetryPolicy#DEFAULT} waiting on the computation scheduler
+     *
+     * @param delegate the provider to decorate
+     */
+    public RetryingSecretProvider(SecretProvider delegate) {
+        this(delegate, RetryPolicy.DEFAULT, Schedulers.computation());
+    }
+
+    /**
+     * @param delegate  the provider to decorate
+     * @param policy    the retry policy
+     * @param scheduler scheduler to wait and measure elapsed time on
+     */
+    public RetryingSecretProvider(SecretProvider delegate, RetryPolicy policy, Scheduler scheduler) {
+        this(delegate, policy, scheduler, ThreadLocalRandom::current);
+    }
+
+    RetryingSecretProvider(SecretProvider delegate, RetryPolicy policy, Scheduler scheduler, Supplier<? extends RandomGenerator> random) {
+        super(delegate);
+        this.policy = Objects.requireNonNull(policy);
+        this.scheduler = Objects.requireNonNull(scheduler);
+        this.random = random;
+    }
+
+    /**
+     * @return number of resolutions retried
+     */
+    public long retries() {
+        return retries.get();
+    }
+
+    /**
+     * @return number of watches re-subscribed
+     */
+    public long resubscriptions() {
+        return resubscriptions.get();
+    }
+
+    @Override
+    public Maybe<SecretMap> resolve(SecretURL secretURL) {
+        return Maybe.defer(() -> {
+            Backoff backoff = new Backoff();
+            return super.resolve(secretURL).retryWhen(errors -> errors.concatMap(error -> backoff.retry(error, retries)));
+        });
+    }
+
+    @Override
+    public Flowable<SecretEvent> watch(SecretURL secretURL) {
+        return Flowable.defer(() -> {
+            Backoff backoff = new Backoff();
+            return super
+                .watch(secretURL)
+                .doOnNext(event -> backoff.reset())
+                .repeatWhen(completions ->
+                    completions
+                        .map(completion -> backoff.next())
+                        .takeWhile(delayMillis -> delayMillis >= 0)
+                        .concatMap(delayMillis -> backoff.delay(delayMillis, resubscriptions))
+                )
+                .retryWhen(errors -> errors.concatMap(error -> backoff.retry(error, resubscriptions)));
+        });
+    }
+
+    /**
+     * Backoff state of one subscription, accessed sequentially by the retry and repeat handlers
+     */
+    private final class Backoff {
+
+        private long startMillis = scheduler.now(TimeUnit.MILLISECONDS);
+        private int retry;
+
+        private void reset() {
+            startMillis = scheduler.now(TimeUnit.MILLISECONDS);
+            retry = 0;
+        }
+
+        /**
+         * @return delay before the next attempt in milliseconds, or -1 if it would be beyond the maximum elapsed time
+         */
+        private long next() {
+            long delayMillis = policy.backoffMillis(retry++, random.get());
+            long elapsedMillis = scheduler.now(TimeUnit.MILLISECONDS) - startMillis;
+            return elapsedMillis + delayMillis > policy.maxElapsed().toMillis() ? -1 : delayMillis;
+        }
+
+        private Flowable<Long> retry(Throwable error, AtomicLong counter) {
+            if (!policy.retryable().test(error)) {
+                return Flowable.error(error);
+            }
+            long delayMillis = next();
+            return delayMillis < 0 ? Flowable.error(error) : delay(delayMillis, counter);
+        }
+
+        private Flowable<Long> delay(long delayMillis, AtomicLong counter) {
+            counter.incrementAndGet();
+            return Flowable.timer(delayMillis, TimeUnit.MILLISECONDS, scheduler);
+        }
+    }
+}
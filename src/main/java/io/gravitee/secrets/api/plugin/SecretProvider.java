@@ -21,6 +21,9 @@ import io.gravitee.secrets.api.core.SecretURL;
 import io.gravitee.secrets.api.errors.SecretManagerException;
 import io.reactivex.rxjava3.core.Flowable;
 import io.reactivex.rxjava3.core.Maybe;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Map;
 
 /**
  * Base service implemented by the plugin. Instance of this class are created by {@link SecretProviderFactory} instance.
@@ -31,6 +34,7 @@ import io.reactivex.rxjava3.core.Maybe;
 public interface SecretProvider {
     String PLUGIN_URL_SCHEME = "secret://";
     String PLUGIN_TYPE = "secret-provider";
+    int DEFAULT_RESOLVE_ALL_CONCURRENCY = 8;
 
     /**
      * Resolve a secret (as a key/value pair) as a {@link Maybe}.
@@ -42,6 +46,34 @@ public interface SecretProvider {
      */
     Maybe<SecretMap> resolve(SecretURL secretURL);
 
+    /**
+     * Resolve several secrets, calling {@link #resolve(SecretURL)} for at most {@link #DEFAULT_RESOLVE_ALL_CONCURRENCY} secrets at a time.
+     *
+     * @param secretURLs where the secrets are located
+     * @return resolved secrets, see {@link #resolveAll(Collection, int)}
+     */
+    default Flowable<Map.Entry<SecretURL, SecretMap>> resolveAll(Collection<SecretURL> secretURLs) {
+        return resolveAll(secretURLs, DEFAULT_RESOLVE_ALL_CONCURRENCY);
+    }
+
+    /**
+     * Resolve several secrets at once. Equal URLs (same provider and path) are resolved once.
+     * The default implementation calls {@link #resolve(SecretURL)} for each URL with a concurrency limit,
+     * implementations should override it when the secret manager can fetch several secrets in a single call.
+     * <p>
+     * Secrets that do not exist are not emitted. Entries come in no particular order,
+     * errors are signaled once all other secrets are resolved.
+     *
+     * @param secretURLs     where the secrets are located
+     * @param maxConcurrency maximum number of secrets resolved at the same time
+     * @return a {@link Flowable} of URL and secret map pairs, one per secret found
+     */
+    default Flowable<Map.Entry<SecretURL, SecretMap>> resolveAll(Collection<SecretURL> secretURLs, int maxConcurrency) {
+        return Flowable
+            .fromIterable(new LinkedHashSet<>(secretURLs))
+            .flatMapMaybe(secretURL -> resolve(secretURL).map(secretMap -> Map.entry(secretURL, secretMap)), true, maxConcurrency);
+    }
+
     /**
      * Watches a secret, no event is published if the secret cannot be found.
      * Although, it may start to emit events afterward if the secret is created in the secret provider.
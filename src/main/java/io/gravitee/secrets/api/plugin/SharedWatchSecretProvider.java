@@ -0,0 +1,68 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.secrets.api.plugin;
+
+import io.gravitee.secrets.api.core.SecretEvent;
+import io.gravitee.secrets.api.core.SecretURL;
+import io.reactivex.rxjava3.core.Flowable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * {@link SecretProvider} decorator multiplexing watches: a single watch of the decorated provider is opened per secret
+ * (provider and path) whatever the number of subscribers.
+ * <p>
+ * The upstream watch is opened by the first subscriber and shared with the next ones, that receive the latest event first.
+ * It is closed when the last subscriber cancels, or when it completes or fails, then the next subscriber opens a new one.
+ * The watch is forgotten before its completion or error reaches subscribers.
+ *
+ * @author GraviteeSource Team
+ */
+public final class SharedWatchSecretProvider extends DelegatingSecretProvider {
+
+    private final ConcurrentMap<SecretURL, Flowable<SecretEvent>> watches = new ConcurrentHashMap<>();
+
+    public SharedWatchSecretProvider(SecretProvider delegate) {
+        super(delegate);
+    }
+
+    @Override
+    public Flowable<SecretEvent> watch(SecretURL secretURL) {
+        return Flowable.defer(() -> watches.computeIfAbsent(secretURL, this::share));
+    }
+
+    /**
+     * @return number of upstream watches
+     */
+    public int watches() {
+        return watches.size();
+    }
+
+    private Flowable<SecretEvent> share(SecretURL secretURL) {
+        AtomicReference<Flowable<SecretEvent>> self = new AtomicReference<>();
+        Flowable<SecretEvent> shared = delegate()
+            .watch(secretURL)
+            // only this watch is removed, not a newer one for the same URL: on termination before the signal is delivered,
+            // so that no subscriber can join this watch once over, and when all subscribers are gone
+            .doOnTerminate(() -> watches.remove(secretURL, self.get()))
+            .doFinally(() -> watches.remove(secretURL, self.get()))
+            .replay(1)
+            .refCount();
+        self.set(shared);
+        return shared;
+    }
+}
@@ -0,0 +1,28 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.secrets.api.scheduling;
+
+import java.util.List;
+
+/**
+ * Items of a same provider that are due together and can be refreshed with a single call to the provider.
+ *
+ * @param provider id of the provider
+ * @param items    items to refresh, never empty
+ * @param <T>      type of items
+ * @author GraviteeSource Team
+ */
+public record RefreshBatch<T>(String provider, List<T> items) {}
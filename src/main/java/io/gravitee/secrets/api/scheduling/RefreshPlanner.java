@@ -0,0 +1,289 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.secrets.api.scheduling;
+
+import com.google.common.math.LongMath;
+import io.gravitee.secrets.api.core.WithExpiration;
+import io.gravitee.secrets.api.spec.Resolution;
+import io.reactivex.rxjava3.core.Flowable;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.random.RandomGenerator;
+
+/**
+ * Plans refreshes on a {@link RefreshScheduler} to avoid refreshing all secrets sharing an expiration or a poll interval at once.
+ * <p>
+ * Each refresh is moved earlier by a random jitter, bounded by a ratio of the refresh interval and by a maximum duration,
+ * so refreshes are spread. Refreshes are also moved one tick earlier, as the scheduler may be up to one tick late,
+ * so a secret is not refreshed after it expires as long as the scheduler keeps up with its ticks.
+ * Items of a same provider that come due on the same tick are coalesced into one {@link RefreshBatch}.
+ * <p>
+ * {@link #stats()} compares the peak of provider calls on a single tick without planning
+ * (one call per item at its exact deadline) and with it (one call per batch).
+ *
+ * @param <T> type of scheduled items
+ * @author GraviteeSource Team
+ */
+public final class RefreshPlanner<T> {
+
+    public static final double DEFAULT_JITTER_RATIO = 0.1;
+    public static final Duration DEFAULT_MAX_JITTER = Duration.ofMinutes(1);
+
+    private final RefreshScheduler<T> scheduler;
+    private final Function<? super T, String> providerOf;
+    private final double jitterRatio;
+    private final long maxJitterMillis;
+    private final Supplier<? extends RandomGenerator> random;
+    private final long tickMillis;
+    private final Flowable<RefreshBatch<T>> due;
+    // number of planned items per deadline tick if they were not jittered
+    private final NavigableMap<Long, Integer> unplanned = new TreeMap<>();
+    private long scheduled;
+    private long refreshed;
+    private long batches;
+    private int peakUnplannedCalls;
+    private int peakCalls;
+
+    /**
+     * Create a planner with {@link #DEFAULT_JITTER_RATIO} and {@link #DEFAULT_MAX_JITTER}
+     *
+     * @param scheduler  scheduler on which refreshes are planned
+     * @param providerOf returns the provider id of an item
+     */
+    public RefreshPlanner(RefreshScheduler<T> scheduler, Function<? super T, String> providerOf) {
+        this(scheduler, providerOf, DEFAULT_JITTER_RATIO, DEFAULT_MAX_JITTER);
+    }
+
+    /**
+     * @param scheduler   scheduler on which refreshes are planned
+     * @param providerOf  returns the provider id of an item
+     * @param jitterRatio maximum jitter as a ratio of the refresh interval, between 0 and 1
+     * @param maxJitter   maximum jitter whatever the refresh interval
+     * @throws IllegalArgumentException if the ratio is not between 0 and 1 or the max jitter is negative
+     */
+    public RefreshPlanner(RefreshScheduler<T> scheduler, Function<? super T, String> providerOf, double jitterRatio, Duration maxJitter) {
+        this(scheduler, providerOf, jitterRatio, maxJitter, ThreadLocalRandom::current);
+    }
+
+    RefreshPlanner(
+        RefreshScheduler<T> scheduler,
+        Function<? super T, String> providerOf,
+        double jitterRatio,
+        Duration maxJitter,
+        Supplier<? extends RandomGenerator> random
+    ) {
+        if (!(jitterRatio >= 0 && jitterRatio <= 1)) {
+            throw new IllegalArgumentException("jitter ratio must be between 0 and 1");
+        }
+        if (maxJitter.isNegative()) {
+            throw new IllegalArgumentException("max jitter cannot be negative");
+        }
+        this.scheduler = scheduler;
+        this.providerOf = providerOf;
+        this.jitterRatio = jitterRatio;
+        this.maxJitterMillis = maxJitter.toMillis();
+        this.random = random;
+        this.tickMillis = scheduler.tick().toMillis();
+        this.due = scheduler.due().concatMapIterable(this::coalesce).share();
+    }
+
+    /**
+     * Ticks are running as long as there is at least one subscriber, all subscribers receive the same batches.
+     *
+     * @return batches of items to refresh, one per provider and tick
+     */
+    public Flowable<RefreshBatch<T>> due() {
+        return due;
+    }
+
+    /**
+     * Plan the next refresh of an item following its resolution, up to the jitter before the end of the poll interval or time-to-live
+     *
+     * @param item       item to schedule
+     * @param resolution resolution of type {@link Resolution.Type#POLL} or {@link Resolution.Type#TTL}
+     * @return a handle to cancel the refresh
+     * @throws IllegalArgumentException if the resolution is of type {@link Resolution.Type#ONCE}
+     */
+    public Planned<T> schedule(T item, Resolution resolution) {
+        if (resolution.type() == Resolution.Type.ONCE) {
+            throw new IllegalArgumentException("cannot schedule a refresh for a resolution of type %s".formatted(resolution.type()));
+        }
+        long interval = resolution.duration().toMillis();
+        return plan(item, scheduler.clock().millis(), interval);
+    }
+
+    /**
+     * Plan the refresh of an item up to the jitter before it expires
+     *
+     * @param item       item to schedule
+     * @param expiration expiration of the item
+     * @return a handle to cancel the refresh
+     * @throws IllegalArgumentException if there is no expiration
+     */
+    public Planned<T> schedule(T item, WithExpiration expiration) {
+        long expiresAtMillis = expiration.expiresAtMillis();
+        if (expiresAtMillis == Long.MAX_VALUE) {
+            throw new IllegalArgumentException("cannot schedule a refresh without expiration");
+        }
+        long now = scheduler.clock().millis();
+        return plan(item, now, Math.max(0, expiresAtMillis - now));
+    }
+
+    /**
+     * Cancel a planned refresh if it is not due yet and plan the next one following a new resolution
+     *
+     * @param planned    previously planned refresh
+     * @param resolution resolution of type {@link Resolution.Type#POLL} or {@link Resolution.Type#TTL}
+     * @return a handle to cancel the new refresh
+     * @throws IllegalArgumentException if the resolution is of type {@link Resolution.Type#ONCE}
+     */
+    public Planned<T> reschedule(Planned<T> planned, Resolution resolution) {
+        planned.cancel();
+        return schedule(planned.item(), resolution);
+    }
+
+    /**
+     * Cancel a planned refresh if it is not due yet and plan the next one before a new expiration
+     *
+     * @param planned    previously planned refresh
+     * @param expiration new expiration of the item
+     * @return a handle to cancel the new refresh
+     * @throws IllegalArgumentException if there is no expiration
+     */
+    public Planned<T> reschedule(Planned<T> planned, WithExpiration expiration) {
+        planned.cancel();
+        return schedule(planned.item(), expiration);
+    }
+
+    /**
+     * @return number of scheduled items
+     */
+    public int size() {
+        return scheduler.size();
+    }
+
+    /**
+     * @return counters of this planner
+     */
+    public synchronized Stats stats() {
+        return new Stats(scheduled, refreshed, batches, peakUnplannedCalls, peakCalls);
+    }
+
+    private Planned<T> plan(T item, long now, long interval) {
+        long deadline = LongMath.saturatedAdd(now, interval);
+        long unplannedTick = Math.floorDiv(deadline, tickMillis);
+        synchronized (this) {
+            int calls = unplanned.merge(unplannedTick, 1, Integer::sum);
+            peakUnplannedCalls = Math.max(peakUnplannedCalls, calls);
+            scheduled++;
+        }
+        long bound = Math.min(maxJitterMillis, (long) (interval * jitterRatio));
+        long jitter = bound > 0 ? random.get().nextLong(bound + 1) : 0;
+        long plannedAt = Math.max(now, deadline - jitter - tickMillis);
+        return new Planned<>(this, scheduler.scheduleAt(item, Instant.ofEpochMilli(plannedAt)), unplannedTick);
+    }
+
+    private synchronized void unplan(long unplannedTick) {
+        unplanned.computeIfPresent(unplannedTick, (tick, calls) -> calls > 1 ? calls - 1 : null);
+    }
+
+    private synchronized List<RefreshBatch<T>> coalesce(List<T> items) {
+        unplanned.headMap(Math.floorDiv(scheduler.clock().millis(), tickMillis), true).clear();
+        Map<String, List<T>> byProvider = new LinkedHashMap<>();
+        for (T item : items) {
+            byProvider.computeIfAbsent(providerOf.apply(item), provider -> new ArrayList<>()).add(item);
+        }
+        List<RefreshBatch<T>> result = new ArrayList<>(byProvider.size());
+        byProvider.forEach((provider, providerItems) -> result.add(new RefreshBatch<>(provider, providerItems)));
+        refreshed += items.size();
+        batches += result.size();
+        peakCalls = Math.max(peakCalls, result.size());
+        return result;
+    }
+
+    /**
+     * Handle of a planned refresh
+     *
+     * @param <T> type of the item
+     */
+    public static final class Planned<T> {
+
+        private final RefreshPlanner<T> planner;
+        private final TimingWheel.Timeout<T> timeout;
+        private final long unplannedTick;
+
+        private Planned(RefreshPlanner<T> planner, TimingWheel.Timeout<T> timeout, long unplannedTick) {
+            this.planner = planner;
+            this.timeout = timeout;
+            this.unplannedTick = unplannedTick;
+        }
+
+        public T item() {
+            return timeout.item();
+        }
+
+        /**
+         * @return when the refresh is due, jitter included, in epoch milliseconds
+         */
+        public long deadlineMillis() {
+            return timeout.deadlineMillis();
+        }
+
+        /**
+         * Cancel the refresh, it is no longer accounted in {@link Stats#peakUnplannedCalls()}
+         *
+         * @return true if the refresh was cancelled, false if it was already due or cancelled
+         */
+        public boolean cancel() {
+            if (timeout.cancel()) {
+                planner.unplan(unplannedTick);
+                return true;
+            }
+            return false;
+        }
+
+        public boolean isCancelled() {
+            return timeout.isCancelled();
+        }
+
+        /**
+         * @return true if the refresh came due
+         */
+        public boolean isExpired() {
+            return timeout.isExpired();
+        }
+    }
+
+    /**
+     * Counters of a {@link RefreshPlanner}
+     *
+     * @param scheduled          number of planned refreshes
+     * @param refreshed          number of items that came due
+     * @param batches            number of emitted batches, that is, provider calls
+     * @param peakUnplannedCalls highest number of provider calls on a single tick if refreshes were neither jittered nor coalesced
+     * @param peakCalls          highest number of provider calls on a single tick
+     */
+    public record Stats(long scheduled, long refreshed, long batches, int peakUnplannedCalls, int peakCalls) {}
+}
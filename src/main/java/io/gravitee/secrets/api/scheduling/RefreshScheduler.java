@@ -0,0 +1,138 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.secrets.api.scheduling;
+
+import com.google.common.math.LongMath;
+import io.gravitee.secrets.api.core.WithExpiration;
+import io.gravitee.secrets.api.spec.Resolution;
+import io.reactivex.rxjava3.core.Flowable;
+import io.reactivex.rxjava3.core.Scheduler;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Schedules refreshes of many secrets with a single timer, using a {@link TimingWheel} advanced on each tick.
+ * <p>
+ * Rather than one Rx interval per secret, items are scheduled from a {@link Resolution} or a {@link WithExpiration}
+ * and {@link #due()} emits all items due on a tick as a single batch, so they can be refreshed in one pass.
+ * Items are one-shot: once emitted they must be scheduled again for the next refresh.
+ *
+ * @param <T> type of scheduled items
+ * @author GraviteeSource Team
+ */
+public final class RefreshScheduler<T> {
+
+    private final TimingWheel<T> wheel;
+    private final Clock clock;
+    private final Flowable<List<T>> due;
+
+    /**
+     * @param tick      resolution of the scheduler, refreshes are at most one tick late
+     * @param clock     clock used to compute deadlines
+     * @param scheduler Rx scheduler running the ticks
+     */
+    public RefreshScheduler(Duration tick, Clock clock, Scheduler scheduler) {
+        this.wheel = new TimingWheel<>(tick, clock.millis());
+        this.clock = clock;
+        long tickMillis = wheel.tick().toMillis();
+        this.due =
+            Flowable
+                .interval(tickMillis, tickMillis, TimeUnit.MILLISECONDS, scheduler)
+                .onBackpressureDrop()
+                .map(i -> wheel.advance(clock.millis()))
+                .filter(batch -> !batch.isEmpty())
+                .share();
+    }
+
+    /**
+     * Ticks are running as long as there is at least one subscriber, all subscribers receive the same batches.
+     *
+     * @return batches of items that are due, never empty
+     */
+    public Flowable<List<T>> due() {
+        return due;
+    }
+
+    /**
+     * @param item     item to schedule
+     * @param deadline when the item is due
+     * @return a handle to cancel the item
+     */
+    public TimingWheel.Timeout<T> scheduleAt(T item, Instant deadline) {
+        return wheel.schedule(item, WithExpiration.toEpochMillis(deadline));
+    }
+
+    /**
+     * @param item  item to schedule
+     * @param delay delay from now after which the item is due
+     * @return a handle to cancel the item
+     */
+    public TimingWheel.Timeout<T> scheduleAfter(T item, Duration delay) {
+        return wheel.schedule(item, LongMath.saturatedAdd(clock.millis(), delay.toMillis()));
+    }
+
+    /**
+     * Schedule the next refresh of an item following its resolution: after one poll interval or time-to-live
+     *
+     * @param item       item to schedule
+     * @param resolution resolution of type {@link Resolution.Type#POLL} or {@link Resolution.Type#TTL}
+     * @return a handle to cancel the item
+     * @throws IllegalArgumentException if the resolution is of type {@link Resolution.Type#ONCE}
+     */
+    public TimingWheel.Timeout<T> schedule(T item, Resolution resolution) {
+        if (resolution.type() == Resolution.Type.ONCE) {
+            throw new IllegalArgumentException("cannot schedule a refresh for a resolution of type %s".formatted(resolution.type()));
+        }
+        return scheduleAfter(item, resolution.duration());
+    }
+
+    /**
+     * Schedule the refresh of an item when it expires
+     *
+     * @param item       item to schedule
+     * @param expiration expiration of the item
+     * @return a handle to cancel the item
+     * @throws IllegalArgumentException if there is no expiration
+     */
+    public TimingWheel.Timeout<T> schedule(T item, WithExpiration expiration) {
+        long expiresAtMillis = expiration.expiresAtMillis();
+        if (expiresAtMillis == Long.MAX_VALUE) {
+            throw new IllegalArgumentException("cannot schedule a refresh without expiration");
+        }
+        return wheel.schedule(item, expiresAtMillis);
+    }
+
+    /**
+     * @return the resolution of this scheduler
+     */
+    public Duration tick() {
+        return wheel.tick();
+    }
+
+    /**
+     * @return number of scheduled items
+     */
+    public int size() {
+        return wheel.size();
+    }
+
+    Clock clock() {
+        return clock;
+    }
+}
@@ -0,0 +1,273 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.secrets.api.scheduling;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Hierarchical timing wheel: schedules items for a deadline with O(1) insertion and cancellation,
+ * whatever the number of scheduled items, at the cost of a time resolution of one tick.
+ * <p>
+ * It is made of 4 wheels of 256 slots. The first wheel holds items due within 256 ticks,
+ * each further wheel covers 256 times the range of the previous one. Items of a slot of an upper wheel are
+ * cascaded into lower wheels when time reaches that slot. Deadlines beyond the range of the last wheel are parked
+ * in it and re-cascaded until due.
+ * <p>
+ * Time only moves when {@link #advance(long)} is called, which returns all items that became due as a single batch.
+ * Items are never returned before their deadline, and at most one tick after their deadline if advance is called on each tick.
+ * Advancing processes ticks one by one, unless the wheel is empty.
+ * All methods are thread-safe.
+ *
+ * @param <T> type of scheduled items
+ * @author GraviteeSource Team
+ */
+public final class TimingWheel<T> {
+
+    private static final int DEFAULT_SLOT_BITS = 8;
+    private static final int DEFAULT_LEVELS = 4;
+
+    private final long tickMillis;
+    private final int slotBits;
+    private final int slotMask;
+    private final int levels;
+    private final long maxDelta;
+    private final Timeout<T>[][] wheels;
+    // next tick to process
+    private long currentTick;
+    private int size;
+
+    /**
+     * @param tick        resolution of the wheel
+     * @param startMillis current time in epoch milliseconds
+     */
+    public TimingWheel(Duration tick, long startMillis) {
+        this(tick, startMillis, DEFAULT_SLOT_BITS, DEFAULT_LEVELS);
+    }
+
+    TimingWheel(Duration tick, long startMillis, int slotBits, int levels) {
+        this.tickMillis = tick.toMillis();
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("tick must be at least one millisecond");
+        }
+        this.slotBits = slotBits;
+        this.slotMask = (1 << slotBits) - 1;
+        this.levels = levels;
+        this.maxDelta = (1L << (slotBits * levels)) - 1;
+        // generic arrays cannot be created, slots only ever hold timeouts of this wheel
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        Timeout<T>[][] slots = new Timeout[levels][1 << slotBits];
+        this.wheels = slots;
+        this.currentTick = Math.floorDiv(startMillis, tickMillis);
+    }
+
+    /**
+     * @return the resolution of this wheel
+     */
+    public Duration tick() {
+        return Duration.ofMillis(tickMillis);
+    }
+
+    /**
+     * Schedule an item
+     *
+     * @param item           the item to schedule
+     * @param deadlineMillis when the item is due in epoch milliseconds, if it is already passed the item is due within a tick
+     * @return a handle to cancel the item
+     */
+    public synchronized Timeout<T> schedule(T item, long deadlineMillis) {
+        Timeout<T> timeout = new Timeout<>(this, Objects.requireNonNull(item), deadlineMillis);
+        // round up to never be early
+        timeout.tick = Math.max(-Math.floorDiv(-deadlineMillis, tickMillis), currentTick);
+        add(timeout);
+        size++;
+        return timeout;
+    }
+
+    /**
+     * Process all ticks up to <code>nowMillis</code>
+     *
+     * @param nowMillis current time in epoch milliseconds
+     * @return items that are due, in no particular order, empty if none
+     */
+    public synchronized List<T> advance(long nowMillis) {
+        long targetTick = Math.floorDiv(nowMillis, tickMillis);
+        if (size == 0) {
+            currentTick = Math.max(currentTick, targetTick + 1);
+            return List.of();
+        }
+        List<T> due = null;
+        while (currentTick <= targetTick) {
+            int slot = (int) (currentTick & slotMask);
+            if (slot == 0) {
+                cascade(1);
+            }
+            Timeout<T> timeout = wheels[0][slot];
+            wheels[0][slot] = null;
+            while (timeout != null) {
+                Timeout<T> next = timeout.next;
+                timeout.unlinked();
+                if (timeout.tick > currentTick) {
+                    // parked in a single level wheel
+                    add(timeout);
+                } else {
+                    timeout.expired = true;
+                    size--;
+                    if (due == null) {
+                        due = new ArrayList<>();
+                    }
+                    due.add(timeout.item);
+                }
+                timeout = next;
+            }
+            currentTick++;
+            if (size == 0) {
+                currentTick = Math.max(currentTick, targetTick + 1);
+            }
+        }
+        return due == null ? List.of() : due;
+    }
+
+    /**
+     * @return number of scheduled items
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    private void cascade(int level) {
+        if (level >= levels) {
+            return;
+        }
+        int slot = (int) ((currentTick >>> (slotBits * level)) & slotMask);
+        if (slot == 0) {
+            cascade(level + 1);
+        }
+        Timeout<T> timeout = wheels[level][slot];
+        wheels[level][slot] = null;
+        while (timeout != null) {
+            Timeout<T> next = timeout.next;
+            timeout.unlinked();
+            add(timeout);
+            timeout = next;
+        }
+    }
+
+    private void add(Timeout<T> timeout) {
+        long delta = timeout.tick - currentTick;
+        long tick = timeout.tick;
+        if (delta > maxDelta) {
+            // parked in the last wheel, it will be cascaded again until due
+            tick = currentTick + maxDelta;
+            delta = maxDelta;
+        }
+        int level = 0;
+        while (level < levels - 1 && delta >= 1L << (slotBits * (level + 1))) {
+            level++;
+        }
+        int slot = (int) ((tick >>> (slotBits * level)) & slotMask);
+        Timeout<T> head = wheels[level][slot];
+        timeout.level = level;
+        timeout.slot = slot;
+        timeout.next = head;
+        if (head != null) {
+            head.prev = timeout;
+        }
+        wheels[level][slot] = timeout;
+    }
+
+    private synchronized boolean cancel(Timeout<T> timeout) {
+        if (timeout.expired || timeout.cancelled) {
+            return false;
+        }
+        timeout.cancelled = true;
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            wheels[timeout.level][timeout.slot] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.unlinked();
+        size--;
+        return true;
+    }
+
+    /**
+     * Handle of a scheduled item
+     *
+     * @param <T> type of the item
+     */
+    public static final class Timeout<T> {
+
+        private final TimingWheel<T> wheel;
+        private final T item;
+        private final long deadlineMillis;
+        private long tick;
+        private int level;
+        private int slot;
+        private Timeout<T> prev;
+        private Timeout<T> next;
+        private boolean expired;
+        private boolean cancelled;
+
+        private Timeout(TimingWheel<T> wheel, T item, long deadlineMillis) {
+            this.wheel = wheel;
+            this.item = item;
+            this.deadlineMillis = deadlineMillis;
+        }
+
+        public T item() {
+            return item;
+        }
+
+        public long deadlineMillis() {
+            return deadlineMillis;
+        }
+
+        /**
+         * Remove the item from the wheel
+         *
+         * @return true if the item was removed, false if it was already due or cancelled
+         */
+        public boolean cancel() {
+            return wheel.cancel(this);
+        }
+
+        public boolean isCancelled() {
+            synchronized (wheel) {
+                return cancelled;
+            }
+        }
+
+        /**
+         * @return true if the item has been returned by {@link TimingWheel#advance(long)}
+         */
+        public boolean isExpired() {
+            synchronized (wheel) {
+                return expired;
+            }
+        }
+
+        private void unlinked() {
+            prev = null;
+            next = null;
+        }
+    }
+}
@@ -17,6 +17,7 @@ package io.gravitee.secrets.api.spec;
 
 import io.gravitee.common.utils.IdGenerator;
 import io.gravitee.secrets.api.core.SecretURL;
+import io.gravitee.secrets.api.core.SecretURLCache;
 import io.gravitee.secrets.api.el.FieldKind;
 import io.gravitee.secrets.api.event.SecretDiscoveryEventType;
 import java.util.Objects;
@@ -107,6 +108,15 @@ public record SecretSpec(
         return SecretURL.from(uriAndKeyAndParams(), true);
     }
 
+    /**
+     * Same as {@link #toSecretURL()} but the SecretURL is taken from a cache of parsed URLs
+     * @param cache the cache to use, e.g. {@link SecretURLCache#shared()}
+     * @return the spec as a SecretURL, shared with other specs having the same uri, key and params
+     */
+    public SecretURL toSecretURL(SecretURLCache cache) {
+        return cache.get(uriAndKeyAndParams(), true);
+    }
+
     /**
      * Simple string representation of unique data of the secret
      * @return name if set or the uri
@@ -164,11 +174,11 @@ public record SecretSpec(
         StringBuilder params = new StringBuilder();
         if (renewable) {
             params.append("?");
-            params.append("renewable=true");
+            params.append(SecretURL.WellKnownQueryParam.RENEWABLE).append("=true");
         }
         if (publishEventOnValueChanged) {
             params.append(params.isEmpty() ? "?" : "&");
-            params.append("reloadOnChange=true");
+            params.append(SecretURL.WellKnownQueryParam.RELOAD_ON_CHANGE).append("=true");
         }
         if (key != null) {
             urikey = urikey.concat(SecretURL.URI_KEY_SEPARATOR).concat(key);
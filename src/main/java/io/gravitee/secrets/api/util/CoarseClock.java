@@ -0,0 +1,152 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.secrets.api.util;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Clock caching the current time in a volatile field refreshed on a fixed tick by a daemon thread.
+ * Reading it is a single volatile read, it is meant for hot paths checking expirations
+ * (see {@link io.gravitee.secrets.api.core.WithExpiration#isExpired(long)}) where being up to one tick late is acceptable.
+ * <p>
+ * A clock started with {@link #start(Duration)} must be closed to stop its thread, {@link #shared()} is never stopped.
+ *
+ * @author GraviteeSource Team
+ */
+public final class CoarseClock extends Clock implements AutoCloseable {
+
+    public static final Duration DEFAULT_TICK = Duration.ofMillis(5);
+
+    private final Ticker ticker;
+    private final ZoneId zone;
+
+    private CoarseClock(Ticker ticker, ZoneId zone) {
+        this.ticker = ticker;
+        this.zone = zone;
+    }
+
+    /**
+     * @return a coarse clock ticking every {@link #DEFAULT_TICK} shared by the whole JVM, closing it has no effect
+     */
+    public static CoarseClock shared() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Start a coarse clock reading the system UTC clock
+     *
+     * @param tick how often the time is refreshed
+     * @return a started clock
+     */
+    public static CoarseClock start(Duration tick) {
+        return start(Clock.systemUTC(), tick);
+    }
+
+    /**
+     * Start a coarse clock reading another clock
+     *
+     * @param source the clock to read the time from
+     * @param tick   how often the time is refreshed
+     * @return a started clock
+     */
+    public static CoarseClock start(Clock source, Duration tick) {
+        Objects.requireNonNull(source);
+        if (tick.toMillis() <= 0) {
+            throw new IllegalArgumentException("tick must be at least one millisecond");
+        }
+        return new CoarseClock(new Ticker(source, tick.toMillis(), false), source.getZone());
+    }
+
+    @Override
+    public long millis() {
+        return ticker.millis;
+    }
+
+    @Override
+    public Instant instant() {
+        return Instant.ofEpochMilli(ticker.millis);
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+        return zone.equals(this.zone) ? this : new CoarseClock(ticker, zone);
+    }
+
+    /**
+     * Stop refreshing the time, all clocks derived using {@link #withZone(ZoneId)} are stopped too.
+     * It is a no-op on the {@link #shared()} clock and the clocks derived from it, which keep ticking.
+     */
+    @Override
+    public void close() {
+        if (!ticker.shared) {
+            ticker.executor.shutdownNow();
+        }
+    }
+
+    /**
+     * @return true once closed and the thread refreshing the time has terminated
+     */
+    boolean isStopped() {
+        return ticker.executor.isTerminated();
+    }
+
+    @Override
+    public String toString() {
+        return "CoarseClock[tick=" + ticker.tickMillis + "ms, zone=" + zone + "]";
+    }
+
+    private static final class Ticker {
+
+        private final long tickMillis;
+        private final boolean shared;
+        private final ScheduledExecutorService executor;
+        private volatile long millis;
+
+        private Ticker(Clock source, long tickMillis, boolean shared) {
+            this.tickMillis = tickMillis;
+            this.shared = shared;
+            this.millis = source.millis();
+            this.executor =
+                Executors.newSingleThreadScheduledExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "gio-secrets-coarse-clock");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            this.executor.scheduleAtFixedRate(() -> millis = source.millis(), tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static final class Holder {
+
+        private static final CoarseClock INSTANCE = new CoarseClock(
+            new Ticker(Clock.systemUTC(), DEFAULT_TICK.toMillis(), true),
+            ZoneOffset.UTC
+        );
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.secrets.api.core;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Random;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * @author GraviteeSource Team
+ */
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class SecretCodecTest {
+
+    @Test
+    void should_decode_base64_like_jdk() {
+        Random random = new Random(42);
+        for (int length = 0; length < 64; length++) {
+            byte[] bytes = new byte[length];
+            random.nextBytes(bytes);
+            String encoded = Base64.getEncoder().encodeToString(bytes);
+            String unpadded = Base64.getEncoder().withoutPadding().encodeToString(bytes);
+            for (Object src : new Object[] { encoded, unpadded, encoded.getBytes(StandardCharsets.ISO_8859_1) }) {
+                assertThat(SecretCodec.base64DecodedLength(src)).isEqualTo(length);
+                ByteBuffer buffer = ByteBuffer.allocate(length);
+                assertThat(SecretCodec.base64Decode(src, buffer)).isEqualTo(length);
+                assertThat(buffer.array()).isEqualTo(bytes);
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "Q", "QQ=", "QUJD=", "Q===", "QU=J", "QU JD", "QUJ-", "QUJé" })
+    void should_reject_invalid_base64_like_jdk(String invalid) {
+        assertThatThrownBy(() -> Base64.getDecoder().decode(invalid)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> SecretCodec.base64Decode(invalid, ByteBuffer.allocate(16))).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "", "ascii", "çà", "€uro", "😀", "\uD83D", "a\uDE00b" })
+    void should_compute_utf8_length(String str) {
+        assertThat(SecretCodec.utf8Length(str)).isEqualTo(str.getBytes(StandardCharsets.UTF_8).length);
+    }
+}
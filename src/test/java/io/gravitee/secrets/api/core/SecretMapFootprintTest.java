@@ -0,0 +1,68 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.secrets.api.core;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.openjdk.jol.info.ClassLayout;
+import org.openjdk.jol.info.GraphLayout;
+
+/**
+ * Measures the retained heap of a small {@link SecretMap} compared to secrets held in a {@link Map#copyOf(Map)}
+ * with well-known keys in an {@link EnumMap}.
+ *
+ * @author GraviteeSource Team
+ */
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class SecretMapFootprintTest {
+
+    @ParameterizedTest
+    @ValueSource(ints = { 2, 4, SecretCompactMap.MAX_SIZE })
+    void should_retain_less_heap_than_immutable_map(int size) {
+        Map<String, String> data = new LinkedHashMap<>();
+        for (int i = 0; i < size; i++) {
+            data.put("key-" + i, "value-" + i);
+        }
+        SecretMap secretMap = SecretMap
+            .builder()
+            .data(data)
+            .wellKnownKeys(Map.of("key-0", SecretMap.WellKnownSecretKey.USERNAME, "key-1", SecretMap.WellKnownSecretKey.PASSWORD))
+            .build();
+        Map<String, Secret> immutableMap = Map.copyOf(new HashMap<>(secretMap.asMap()));
+
+        // both maps retain the same secrets
+        long compactMap = GraphLayout.parseInstance(secretMap.asMap()).totalSize();
+        long legacyMap = GraphLayout.parseInstance(immutableMap).totalSize();
+        // well-known secrets were held by an enum map and its values array, they are now held by an array
+        int wellKnownKeys = SecretMap.WellKnownSecretKey.values().length;
+        long wellKnownArray = ClassLayout.parseInstance(new Secret[wellKnownKeys]).instanceSize();
+        long legacyWellKnown =
+            ClassLayout.parseClass(EnumMap.class).instanceSize() + ClassLayout.parseInstance(new Object[wellKnownKeys]).instanceSize();
+        long after = GraphLayout.parseInstance(secretMap).totalSize();
+        long before = after - compactMap + legacyMap - wellKnownArray + legacyWellKnown;
+
+        assertThat(compactMap).isLessThan(legacyMap);
+        assertThat(after).as("retained bytes per SecretMap: %d, with Map.copyOf and EnumMap: %d", after, before).isLessThan(before);
+    }
+}
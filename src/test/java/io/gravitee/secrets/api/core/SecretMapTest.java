@@ -19,7 +19,10 @@ import static org.assertj.core.api.Assertions.assertThat;
 
 import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.function.BiConsumer;
 import java.util.stream.Stream;
 import org.assertj.core.api.Assertions;
 import org.assertj.core.api.InstanceOfAssertFactories;
@@ -47,7 +50,8 @@ class SecretMapTest {
             Arguments.of("simple byte", SecretMap.of(Map.of(KEY, SECRET.getBytes(StandardCharsets.UTF_8)))),
             Arguments.of("simple string b64", SecretMap.ofBase64(Map.of(KEY, SECRET_B64))),
             Arguments.of("simple byte b64", SecretMap.ofBase64(Map.of(KEY, SECRET_B64.getBytes(StandardCharsets.UTF_8)))),
-            Arguments.of("simple from map string", new SecretMap(Map.of(KEY, new Secret(SECRET))))
+            Arguments.of("simple from map string", new SecretMap(Map.of(KEY, new Secret(SECRET)))),
+            Arguments.of("off-heap b64", SecretMap.ofOffHeap(Map.of(KEY, SECRET_B64), true, null))
         );
     }
 
@@ -88,6 +92,66 @@ class SecretMapTest {
         assertThat(secretMap.wellKnown(SecretMap.WellKnownSecretKey.CERTIFICATE)).isNotPresent();
     }
 
+    @Test
+    void should_build_with_well_known_keys() {
+        Instant expiresAt = Instant.now().plusSeconds(60);
+        SecretMap secretMap = SecretMap
+            .builder()
+            .data(Map.of("tls.crt", "Y2VydA==", "tls.key", "a2V5".getBytes(StandardCharsets.UTF_8), "other", "b3RoZXI="))
+            .base64(true)
+            .expiresAt(expiresAt)
+            .wellKnownKeys(
+                Map.of(
+                    "tls.crt",
+                    SecretMap.WellKnownSecretKey.CERTIFICATE,
+                    "tls.key",
+                    SecretMap.WellKnownSecretKey.PRIVATE_KEY,
+                    "absent",
+                    SecretMap.WellKnownSecretKey.PASSWORD
+                )
+            )
+            .build();
+
+        assertThat(secretMap.size()).isEqualTo(3);
+        assertThat(secretMap.expiresAt()).contains(expiresAt);
+        assertThat(secretMap.get("other").asString()).isEqualTo("other");
+        assertThat(secretMap.wellKnown(SecretMap.WellKnownSecretKey.CERTIFICATE)).get().extracting(Secret::asString).isEqualTo("cert");
+        assertThat(secretMap.wellKnown(SecretMap.WellKnownSecretKey.PRIVATE_KEY)).get().extracting(Secret::asString).isEqualTo("key");
+        assertThat(secretMap.wellKnown(SecretMap.WellKnownSecretKey.PASSWORD)).isNotPresent();
+        assertThat(secretMap.wellKnown(SecretMap.WellKnownSecretKey.PRIVATE_KEY)).get().isSameAs(secretMap.get("tls.key"));
+
+        // further mapping adds up to the index built at construction
+        secretMap.handleWellKnownSecretKeys(Map.of("other", SecretMap.WellKnownSecretKey.PASSWORD));
+        assertThat(secretMap.wellKnown(SecretMap.WellKnownSecretKey.PASSWORD)).get().extracting(Secret::asString).isEqualTo("other");
+        assertThat(secretMap.wellKnown(SecretMap.WellKnownSecretKey.CERTIFICATE)).isPresent();
+    }
+
+    @Test
+    void should_keep_well_known_keys_when_whole_map_expires() {
+        SecretMap secretMap = SecretMap
+            .builder()
+            .data(Map.of("username", "admin", "password", "secret"))
+            .wellKnownKeys(Map.of("password", SecretMap.WellKnownSecretKey.PASSWORD))
+            .build();
+        Instant expiresAt = Instant.now().plusSeconds(60);
+
+        SecretMap expiring = secretMap.withExpiresAt(SecretURL.from("secret://foo/bar"), expiresAt);
+
+        assertThat(expiring.expiresAt()).contains(expiresAt);
+        assertThat(expiring.wellKnown(SecretMap.WellKnownSecretKey.PASSWORD)).get().isSameAs(secretMap.get("password"));
+        expiring.handleWellKnownSecretKeys(Map.of("username", SecretMap.WellKnownSecretKey.USERNAME));
+        assertThat(expiring.wellKnown(SecretMap.WellKnownSecretKey.USERNAME)).get().extracting(Secret::asString).isEqualTo("admin");
+        assertThat(secretMap.wellKnown(SecretMap.WellKnownSecretKey.USERNAME)).isNotPresent();
+    }
+
+    @Test
+    void should_build_like_factories() {
+        Map<String, String> data = Map.of(KEY, SECRET_B64, "one", "dHdv");
+        assertThat(SecretMap.builder().data(data).base64(true).build()).isEqualTo(SecretMap.ofBase64(data));
+        assertThat(SecretMap.builder().data(data).build()).isEqualTo(SecretMap.of(data));
+        assertThat(SecretMap.builder().build().size()).isZero();
+    }
+
     @Test
     void should_have_equals_and_hash_code() {
         assertThat(SecretMap.of(Map.of(KEY, SECRET))).isEqualTo(SecretMap.of(Map.of(KEY, SECRET)));
@@ -103,6 +167,29 @@ class SecretMapTest {
         Assertions.assertThat(map).containsEntry(KEY, new Secret(SECRET)).containsEntry("one", new Secret("two"));
     }
 
+    @Test
+    void should_read_map_without_copy() {
+        SecretMap secretMap = SecretMap.of(Map.of(KEY, SECRET, "one", "two"));
+        assertThat(secretMap.asMap()).isSameAs(secretMap.asMap());
+        assertThat(secretMap.size()).isEqualTo(2);
+        assertThat(secretMap.keys()).containsExactlyInAnyOrder(KEY, "one");
+        assertThat(secretMap.get("one")).isEqualTo(new Secret("two"));
+        assertThat(secretMap.get("__unknown__")).isNull();
+        Map<String, Secret> collected = new HashMap<>();
+        secretMap.forEach(collected::put);
+        assertThat(collected).isEqualTo(secretMap.asMap());
+        Map<Object, Object> widened = new HashMap<>();
+        BiConsumer<Object, Object> action = widened::put;
+        secretMap.forEach(action);
+        assertThat(widened).isEqualTo(secretMap.asMap());
+
+        SecretMap expiring = secretMap.withExpiresAt(SecretURL.from("secret://foo/bar"), Instant.now());
+        assertThat(expiring.asMap()).isSameAs(secretMap.asMap());
+        SecretMap keyExpiring = secretMap.withExpiresAt(SecretURL.from("secret://foo/bar:".concat(KEY)), Instant.now());
+        assertThat(keyExpiring.get("one")).isSameAs(secretMap.get("one"));
+        assertThat(keyExpiring.keys()).isEqualTo(secretMap.keys());
+    }
+
     @Test
     void should_set_expiration() {
         SecretMap underTest = SecretMap.of(Map.of(KEY, SECRET, "second", "two"));
@@ -137,4 +224,72 @@ class SecretMapTest {
         SecretMap untouched = underTest.withExpiresAt(SecretURL.from("secret://foo/bar:__unknown__"), Instant.now().plusNanos(1));
         assertThat(underTest).isSameAs(untouched);
     }
+
+    @Test
+    void should_destroy_off_heap_secrets() {
+        SecretMap secretMap = new SecretMap(Map.of("heap", new Secret(SECRET), KEY, Secret.offHeap(SECRET, false, null)));
+        SecretURL url = SecretURL.from("secret://foo/bar:".concat(KEY));
+        SecretMap expiring = secretMap.withExpiresAt(url, Instant.now());
+
+        secretMap.destroy();
+
+        assertThat(secretMap.isDestroyed()).isTrue();
+        assertThat(secretMap.getSecret(url)).get().extracting(Secret::isDestroyed).isEqualTo(true);
+        assertThat(expiring.getSecret(url)).get().extracting(Secret::isDestroyed).isEqualTo(true);
+        assertThat(secretMap.getSecret(SecretURL.from("secret://foo/bar:heap"))).get().extracting(Secret::asString).isEqualTo(SECRET);
+    }
+
+    @Test
+    void should_share_entries_when_setting_key_expiration() {
+        Map<String, String> data = new HashMap<>();
+        for (int i = 0; i < 20; i++) {
+            data.put("key-" + i, "value-" + i);
+        }
+        Instant mapExpiresAt = Instant.now().plusSeconds(3600);
+        SecretMap secretMap = SecretMap
+            .builder()
+            .data(data)
+            .expiresAt(mapExpiresAt)
+            .wellKnownKeys(Map.of("key-0", SecretMap.WellKnownSecretKey.PASSWORD))
+            .build();
+        assertThat(secretMap.nextExpiry()).contains(mapExpiresAt);
+
+        SecretMap current = secretMap;
+        for (int i = 0; i < 20; i++) {
+            Instant expiresAt = mapExpiresAt.minusSeconds(i + 1);
+            current = current.withExpiresAt(SecretURL.from("secret://foo/bar:key-" + i), expiresAt);
+            assertThat(current.expiresAt()).contains(mapExpiresAt);
+            assertThat(current.nextExpiry()).contains(expiresAt);
+            assertThat(current.get("key-" + i).expiresAt()).contains(expiresAt);
+            assertThat(current.get("key-" + i).asString()).isEqualTo("value-" + i);
+            if (i < 19) {
+                assertThat(current.get("key-19")).isSameAs(secretMap.get("key-19"));
+            }
+        }
+        assertThat(current.size()).isEqualTo(20);
+        assertThat(current.keys()).isEqualTo(secretMap.keys());
+        assertThat(current.wellKnown(SecretMap.WellKnownSecretKey.PASSWORD)).get().isSameAs(current.get("key-0"));
+        assertThat(secretMap.get("key-0").expiresAt()).isEmpty();
+
+        // replacing the earliest expiring secret forces a recomputation
+        SecretMap later = current.withExpiresAt(SecretURL.from("secret://foo/bar:key-19"), null);
+        assertThat(later.nextExpiry()).contains(mapExpiresAt.minusSeconds(19));
+    }
+
+    @Test
+    void should_collapse_overlays() {
+        SecretMap secretMap = SecretMap.of(Map.of("a", "1", "b", "2", "c", "3"));
+        Map<String, Secret> map = secretMap.asMap();
+        for (int i = 0; i < 3 * SecretOverlayMap.MAX_DEPTH; i++) {
+            String key = List.of("a", "b", "c").get(i % 3);
+            map = SecretOverlayMap.with(map, key, new Secret(key + i));
+            if (map instanceof SecretOverlayMap overlay) {
+                assertThat(overlay.depth()).isLessThanOrEqualTo(SecretOverlayMap.MAX_DEPTH);
+            }
+        }
+        assertThat(map).isEqualTo(Map.of("a", new Secret("a21"), "b", new Secret("b22"), "c", new Secret("c23")));
+        assertThat(SecretOverlayMap.with(SecretOverlayMap.with(secretMap.asMap(), "a", new Secret("x")), "a", new Secret("y")))
+            .isInstanceOfSatisfying(SecretOverlayMap.class, overlay -> assertThat(overlay.depth()).isEqualTo(1))
+            .containsEntry("a", new Secret("y"));
+    }
 }
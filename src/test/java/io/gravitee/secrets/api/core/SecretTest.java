@@ -17,10 +17,20 @@ package io.gravitee.secrets.api.core;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
+import io.gravitee.secrets.api.util.ManualClock;
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Base64;
 import java.util.List;
+import javax.security.auth.DestroyFailedException;
 import org.junit.jupiter.api.DisplayNameGeneration;
 import org.junit.jupiter.api.DisplayNameGenerator;
 import org.junit.jupiter.api.Test;
@@ -73,12 +83,168 @@ class SecretTest {
         }
     }
 
+    @Test
+    void should_memoize_base64_decoding() {
+        String secretString = "that'll remain our dirty little secret";
+        byte[] secretBytes = secretString.getBytes(StandardCharsets.UTF_8);
+        String secretBase64String = Base64.getEncoder().encodeToString(secretBytes);
+        byte[] secretBase64Bytes = Base64.getEncoder().encode(secretBytes);
+        for (Secret base64 : List.of(new Secret(secretBase64String, true), new Secret(secretBase64Bytes, true))) {
+            Secret secret = base64.memoized();
+            assertThat(secret).isEqualTo(base64).hasSameHashCodeAs(base64);
+            assertThat(secret.asString()).isEqualTo(secretString).isSameAs(secret.asString());
+            assertThat(secret.asBytes()).isEqualTo(secretBytes).isSameAs(secret.asBytes());
+            assertThat(secret.memoized()).isSameAs(secret);
+            Secret expiring = secret.withExpiresAt(Instant.now());
+            assertThat(expiring.asBytes()).isSameAs(expiring.asBytes());
+        }
+        Secret notEncoded = new Secret(secretString);
+        assertThat(notEncoded.memoized()).isSameAs(notEncoded);
+    }
+
+    @Test
+    void should_expose_secret_as_buffers_and_write_it() throws Exception {
+        String secretString = "that'll remain our dirty little secret, ça c'est sûr";
+        byte[] secretBytes = secretString.getBytes(StandardCharsets.UTF_8);
+        String secretBase64String = Base64.getEncoder().encodeToString(secretBytes);
+        List<Secret> secrets = List.of(
+            new Secret(secretString),
+            new Secret(secretBytes),
+            new Secret(secretBase64String, true),
+            new Secret(secretBase64String.getBytes(StandardCharsets.UTF_8), true),
+            new Secret(secretBase64String, true).memoized()
+        );
+        for (Secret secret : secrets) {
+            assertThat(secret.size()).isEqualTo(secretBytes.length);
+
+            ByteBuffer view = secret.asByteBuffer();
+            assertThat(view.isReadOnly()).isTrue();
+            assertThat(view).isEqualTo(ByteBuffer.wrap(secretBytes));
+
+            ByteBuffer direct = ByteBuffer.allocateDirect(secret.size() + 2).position(2);
+            assertThat(secret.decodeInto(direct)).isEqualTo(secretBytes.length);
+            assertThat(direct.position()).isEqualTo(direct.capacity());
+            assertThat(direct.position(2)).isEqualTo(ByteBuffer.wrap(secretBytes));
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            secret.writeTo(out);
+            secret.writeTo(Channels.newChannel(out));
+            assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo(secretString + secretString);
+
+            ByteBuffer tooSmall = ByteBuffer.allocate(secretBytes.length - 1);
+            assertThatThrownBy(() -> secret.decodeInto(tooSmall)).isInstanceOf(BufferOverflowException.class);
+            assertThat(tooSmall.position()).isZero();
+        }
+    }
+
+    @Test
+    void should_wrap_raw_bytes_without_copy() {
+        byte[] secretBytes = "secret".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer view = new Secret(secretBytes).asByteBuffer();
+        secretBytes[0] = 'S';
+        assertThat(view.get(0)).isEqualTo((byte) 'S');
+    }
+
+    @Test
+    void should_fail_decoding_invalid_base64_into_buffer() {
+        ByteBuffer buffer = ByteBuffer.allocate(16);
+        assertThatThrownBy(() -> new Secret("YWJj$GVm", true).decodeInto(buffer)).isInstanceOf(IllegalArgumentException.class);
+        assertThat(buffer.position()).isZero();
+    }
+
+    @Test
+    void should_store_secret_off_heap_and_destroy_it() throws Exception {
+        String secretString = "that'll remain our dirty little secret";
+        byte[] secretBytes = secretString.getBytes(StandardCharsets.UTF_8);
+        Instant expiresAt = Instant.now();
+        Secret secret = Secret.offHeap(Base64.getEncoder().encodeToString(secretBytes), true, expiresAt);
+
+        assertThat(secret.isOffHeap()).isTrue();
+        assertThat(secret.asByteBuffer().isDirect()).isTrue();
+        assertThat(secret.asString()).isEqualTo(secretString);
+        assertThat(secret.asBytes()).isEqualTo(secretBytes);
+        assertThat(secret.size()).isEqualTo(secretBytes.length);
+        assertThat(secret.expiresAt()).contains(expiresAt);
+        assertThat(secret).isEqualTo(Secret.offHeap(secretBytes, false, expiresAt)).isNotEqualTo(new Secret(secretBytes));
+        int hashCode = secret.hashCode();
+
+        ByteBuffer view = secret.asByteBuffer();
+        Secret expiring = secret.withExpiresAt(Instant.now());
+        secret.destroy();
+
+        assertThat(secret.isDestroyed()).isTrue();
+        assertThat(expiring.isDestroyed()).isTrue();
+        assertThat(secret.hashCode()).isEqualTo(hashCode);
+        assertThat(view).isEqualTo(ByteBuffer.allocate(secretBytes.length));
+        assertThatThrownBy(secret::asBytes).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(secret::asString).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> new Secret(secretBytes).destroy()).isInstanceOf(DestroyFailedException.class);
+        assertThat(new Secret(secretBytes).isDestroyed()).isFalse();
+    }
+
+    @Test
+    void should_get_secret_as_chars() {
+        String secretString = "that'll remain our dirty little secret, ça c'est sûr \uD83D\uDE00";
+        byte[] secretBytes = secretString.getBytes(StandardCharsets.UTF_8);
+        String secretBase64String = Base64.getEncoder().encodeToString(secretBytes);
+        List<Secret> secrets = List.of(
+            new Secret(secretString),
+            new Secret(secretBytes),
+            new Secret(secretBase64String, true),
+            new Secret(secretBase64String.getBytes(StandardCharsets.UTF_8), true),
+            new Secret(secretBase64String, true).memoized(),
+            Secret.offHeap(secretBytes, false, null)
+        );
+        for (Secret secret : secrets) {
+            assertThat(secret.asString()).isEqualTo(secretString);
+            assertThat(secret.asChars()).isEqualTo(secretString.toCharArray());
+
+            CharBuffer buffer = CharBuffer.allocate(secret.size() + 1).put('>');
+            assertThat(secret.decodeCharsInto(buffer)).isEqualTo(secretString.length());
+            assertThat(buffer.flip().toString()).isEqualTo(">" + secretString);
+
+            CharBuffer tooSmall = CharBuffer.allocate(secretString.length() - 1);
+            assertThatThrownBy(() -> secret.decodeCharsInto(tooSmall)).isInstanceOf(BufferOverflowException.class);
+            assertThat(tooSmall.position()).isZero();
+        }
+    }
+
+    @Test
+    void should_replace_malformed_utf8_chars_like_string() {
+        byte[] malformed = { 'a', (byte) 0xC3, 'b', (byte) 0xFF };
+        assertThat(new Secret(malformed).asChars()).isEqualTo(new String(malformed, StandardCharsets.UTF_8).toCharArray());
+    }
+
+    @Test
+    void should_check_expiration_with_clock() {
+        ManualClock clock = new ManualClock(Instant.parse("2024-01-01T00:00:00Z"));
+        Secret secret = new Secret("foo").withExpiresAt(clock.instant().plusMillis(100));
+        assertThat(secret.expiresAtMillis()).isEqualTo(clock.millis() + 100);
+        assertThat(secret.isExpired(clock)).isFalse();
+        assertThat(secret.isExpired(clock.millis())).isFalse();
+
+        clock.advance(Duration.ofMillis(100));
+        assertThat(secret.isExpired(clock)).isFalse();
+        assertThat(secret.isExpired(clock.millis())).isFalse();
+
+        clock.advance(Duration.ofMillis(1));
+        assertThat(secret.isExpired(clock)).isTrue();
+        assertThat(secret.isExpired(clock.millis())).isTrue();
+
+        Secret neverExpires = new Secret("foo");
+        assertThat(neverExpires.expiresAtMillis()).isEqualTo(Long.MAX_VALUE);
+        assertThat(neverExpires.isExpired(Long.MAX_VALUE)).isFalse();
+        assertThat(neverExpires.isExpired(clock)).isFalse();
+        assertThat(new Secret("foo").withExpiresAt(Instant.MAX).expiresAtMillis()).isEqualTo(Long.MAX_VALUE - 1);
+    }
+
     @Test
     void should_be_empty() {
         assertThat(new Secret("").isEmpty()).isTrue();
         assertThat(new Secret(new byte[0]).isEmpty()).isTrue();
         assertThat(new Secret("a").isEmpty()).isFalse();
         assertThat(new Secret(new byte[] { 0 }).isEmpty()).isFalse();
+        assertThat(Secret.offHeap("", false, null).isEmpty()).isTrue();
     }
 
     @Test
@@ -0,0 +1,88 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.secrets.api.core;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author GraviteeSource Team
+ */
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class SecretURLCacheTest {
+
+    @Test
+    void should_return_same_instance() {
+        SecretURLCache cut = new SecretURLCache();
+        SecretURL first = cut.get("secret://foo/bar:key?watch", false);
+        SecretURL second = cut.get("secret://foo/bar:key?watch", false);
+        assertThat(second).isSameAs(first);
+        assertThat(second.key()).isEqualTo("key");
+        assertThat(second.isWatchable()).isTrue();
+        assertThat(cut.stats().hitCount()).isEqualTo(1);
+        assertThat(cut.stats().missCount()).isEqualTo(1);
+        assertThat(cut.size()).isEqualTo(1);
+    }
+
+    @Test
+    void should_cache_uri() {
+        SecretURLCache cut = new SecretURLCache();
+        SecretURL uri = cut.get("/foo/bar:key", true);
+        assertThat(uri.isURI()).isTrue();
+        assertThat(cut.get("/foo/bar:key", true)).isSameAs(uri);
+        assertThatCode(() -> cut.get("/foo/bar:key", false)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void should_count_lookup_of_other_kind_as_miss() {
+        SecretURLCache cut = new SecretURLCache();
+        cut.get("/foo/bar:key", true);
+        assertThatCode(() -> cut.get("/foo/bar:key", false)).isInstanceOf(IllegalArgumentException.class);
+        assertThat(cut.stats().hitCount()).isZero();
+        assertThat(cut.stats().missCount()).isEqualTo(2);
+        assertThat(cut.size()).isEqualTo(1);
+    }
+
+    @Test
+    void should_evict_least_recently_used() {
+        SecretURLCache cut = new SecretURLCache(2);
+        SecretURL foo = cut.get("secret://foo/bar", false);
+        cut.get("secret://foo/baz", false);
+        cut.get("secret://foo/bar", false);
+        cut.get("secret://foo/puk", false);
+        assertThat(cut.size()).isEqualTo(2);
+        assertThat(cut.stats().evictionCount()).isEqualTo(1);
+        assertThat(cut.get("secret://foo/bar", false)).isSameAs(foo);
+    }
+
+    @Test
+    void should_not_cache_errors() {
+        SecretURLCache cut = new SecretURLCache();
+        assertThatCode(() -> cut.get("secret://foo", false))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("should have the following format");
+        assertThat(cut.size()).isZero();
+    }
+
+    @Test
+    void should_use_shared_cache() {
+        assertThat(SecretURL.cached("secret://foo/shared", false)).isSameAs(SecretURL.cached("secret://foo/shared", false));
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.secrets.api.core;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.common.collect.Multimap;
+import com.google.common.collect.MultimapBuilder;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.openjdk.jol.info.GraphLayout;
+
+/**
+ * Measures the retained heap of a {@link SecretURL} compared to a query held in a Guava <code>ArrayListMultimap</code>.
+ *
+ * @author GraviteeSource Team
+ */
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class SecretURLFootprintTest {
+
+    @ParameterizedTest
+    @ValueSource(
+        strings = {
+            "secret://vault/secret/apim/backend:password",
+            "secret://vault/secret/apim/backend:password?watch",
+            "secret://kubernetes/tls-secret?namespace=gravitee&keymap=certificate:tls.crt&keymap=private_key:tls.key&watch",
+        }
+    )
+    void should_retain_less_heap_than_array_list_multimap(String url) {
+        SecretURL secretURL = SecretURL.from(url);
+        Multimap<String, String> arrayListMultimap = MultimapBuilder.hashKeys().arrayListValues().build();
+        secretURL.query().forEach(arrayListMultimap::put);
+
+        long total = GraphLayout.parseInstance(secretURL).totalSize();
+        long compactQuery = GraphLayout.parseInstance(secretURL.query()).totalSize();
+        long legacyQuery = GraphLayout.parseInstance(arrayListMultimap).totalSize();
+        // the empty query is a shared instance
+        long after = secretURL.query().isEmpty() ? total - compactQuery : total;
+        long before = total - compactQuery + legacyQuery;
+
+        assertThat(after).as("retained bytes per SecretURL: %d, with ArrayListMultimap: %d", after, before).isLessThan(before);
+        assertThat(compactQuery).isLessThan(legacyQuery);
+    }
+}
@@ -18,6 +18,8 @@ package io.gravitee.secrets.api.core;
 import static org.assertj.core.api.Assertions.*;
 import static org.junit.jupiter.params.provider.Arguments.arguments;
 
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ImmutableListMultimap;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -65,7 +67,9 @@ class SecretURLTest {
                 null,
                 Map.of("watch", List.of("false"), "exclude", List.of("7", "9")),
                 false
-            )
+            ),
+            arguments("secret://foo/bar/puk?watch=true=false", "foo", "bar/puk", null, Map.of("watch", List.of("true")), true),
+            arguments(" secret://foo/bar/puk:key?&watch", "foo", "bar/puk", "key", Map.of("watch", List.of("true")), true)
         );
     }
 
@@ -95,7 +99,9 @@ class SecretURLTest {
             arguments("secret://foo/?"),
             arguments("secret://foo/ /?"),
             arguments("secret://foo/ /bar?"),
-            arguments("secret://foo//bar?")
+            arguments("secret://foo//bar?"),
+            arguments("secret://fo?o/bar"),
+            arguments("secret://foo/bar/ :key")
         );
     }
 
@@ -162,6 +168,53 @@ class SecretURLTest {
         assertThatThrownBy(cut::wellKnowKeyMap).isInstanceOf(IllegalArgumentException.class);
     }
 
+    @Test
+    void should_index_well_known_query_params() {
+        SecretURL cut = SecretURL.from(
+            "secret://foo/bar?watch=TRUE&resolveBeforeWatch&renewable=false&reloadOnChange=true&namespace=ns&namespace=other&keymap=username:user"
+        );
+        assertThat(cut.queryIndex().watch()).isTrue();
+        assertThat(cut.queryIndex().resolveBeforeWatch()).isTrue();
+        assertThat(cut.queryIndex().renewable()).isFalse();
+        assertThat(cut.queryIndex().reloadOnChange()).isTrue();
+        assertThat(cut.queryIndex().namespace()).isEqualTo("ns");
+        assertThat(cut.queryParamEqualsIgnoreCase(SecretURL.WellKnownQueryParam.RENEWABLE, "true")).isFalse();
+        assertThat(cut.queryParamEqualsIgnoreCase(SecretURL.WellKnownQueryParam.RENEWABLE, "FALSE")).isTrue();
+        assertThat(cut.queryParamEqualsIgnoreCase(SecretURL.WellKnownQueryParam.NAMESPACE, "OTHER")).isTrue();
+        assertThat(cut.wellKnowKeyMap()).containsExactly(entry("user", SecretMap.WellKnownSecretKey.USERNAME)).isSameAs(cut.wellKnowKeyMap());
+
+        SecretURL noQuery = SecretURL.from("secret://foo/bar");
+        assertThat(noQuery.isWatchable()).isFalse();
+        assertThat(noQuery.queryIndex().namespace()).isNull();
+        assertThat(noQuery.wellKnowKeyMap()).isEmpty();
+    }
+
+    @Test
+    void should_expose_immutable_multimap_query() {
+        SecretURL cut = SecretURL.from("secret://foo/bar?exclude=7&watch&exclude=9");
+        assertThat(cut.query())
+            .isEqualTo(ImmutableListMultimap.of("exclude", "7", "watch", "true", "exclude", "9"))
+            .hasSameHashCodeAs(ImmutableListMultimap.of("exclude", "7", "watch", "true", "exclude", "9"));
+        assertThat(cut.query().size()).isEqualTo(3);
+        assertThat(cut.query().get("exclude")).containsExactly("7", "9");
+        assertThat(cut.query().get("watch")).containsExactly("true");
+        assertThat(cut.query().get("unknown")).isEmpty();
+        assertThat(cut.query().containsEntry("exclude", "9")).isTrue();
+        assertThat(cut.query().keySet()).containsExactlyInAnyOrder("exclude", "watch");
+        assertThatCode(() -> cut.query().put("foo", "bar")).isInstanceOf(UnsupportedOperationException.class);
+        assertThat(SecretURL.from("secret://foo/bar").query()).isSameAs(SecretURL.from("secret://foo/baz").query());
+        assertThat(SecretURL.from("secret://foo/bar").query().isEmpty()).isTrue();
+
+        ArrayListMultimap<String, String> mutable = ArrayListMultimap.create();
+        mutable.put("watch", "true");
+        SecretURL built = new SecretURL("foo", "bar", null, mutable, false);
+        mutable.clear();
+        assertThat(built.isWatchable()).isTrue();
+        assertThat(built.query().containsKey("watch")).isTrue();
+        assertThat(built.queryIndex()).isSameAs(built.queryIndex());
+        assertThat(built).isEqualTo(SecretURL.from("secret://foo/bar?watch=true")).hasSameHashCodeAs(SecretURL.from("secret://foo/bar?watch"));
+    }
+
     @Test
     void should_parse_uri() {
         SecretURL cut = SecretURL.from("/foo/bar:baz?buz=pUUUk", true);
@@ -0,0 +1,543 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.secrets.api.plugin;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import com.google.common.cache.CacheStats;
+import io.gravitee.secrets.api.core.SecretEvent;
+import io.gravitee.secrets.api.core.SecretMap;
+import io.gravitee.secrets.api.core.SecretURL;
+import io.gravitee.secrets.api.errors.SecretAccessDeniedException;
+import io.gravitee.secrets.api.errors.SecretManagerException;
+import io.gravitee.secrets.api.spec.OnErrorStrategy;
+import io.gravitee.secrets.api.util.ManualClock;
+import io.reactivex.rxjava3.core.Flowable;
+import io.reactivex.rxjava3.schedulers.TestScheduler;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author GraviteeSource Team
+ */
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class CachingSecretProviderTest {
+
+    private FakeSecretProvider delegate;
+    private ManualClock clock;
+
+    @BeforeEach
+    void before() {
+        delegate = new FakeSecretProvider();
+        clock = new ManualClock(Instant.parse("2024-01-01T00:00:00Z"));
+    }
+
+    @Test
+    void should_resolve_from_cache() {
+        SecretMap secretMap = SecretMap.of(Map.of("key", "value"));
+        delegate.put("path", secretMap);
+        CachingSecretProvider cut = CachingSecretProvider.builder(delegate).clock(clock).build();
+
+        cut.resolve(SecretURL.from("secret://fake/path:key")).test().assertValue(secretMap);
+        cut.resolve(SecretURL.from("secret://fake/path:other")).test().assertValue(secretMap);
+        cut.resolve(SecretURL.from("secret://fake/path")).test().assertValue(secretMap);
+
+        assertThat(delegate.resolveCalls()).isEqualTo(1);
+        CacheStats stats = cut.stats();
+        assertThat(stats.hitCount()).isEqualTo(2);
+        assertThat(stats.missCount()).isEqualTo(1);
+        assertThat(stats.loadSuccessCount()).isEqualTo(1);
+        assertThat(cut.size()).isEqualTo(1);
+    }
+
+    @Test
+    void should_not_return_expired_secret_map() {
+        delegate.put("path", SecretMap.of(Map.of("key", "value"), clock.instant().plusSeconds(10)));
+        CachingSecretProvider cut = CachingSecretProvider.builder(delegate).clock(clock).build();
+        SecretURL secretURL = SecretURL.from("secret://fake/path:key");
+
+        cut.resolve(secretURL).test().assertValueCount(1);
+        clock.advance(Duration.ofSeconds(10));
+        cut.resolve(secretURL).test().assertValueCount(1);
+        assertThat(delegate.resolveCalls()).isEqualTo(1);
+
+        clock.advance(Duration.ofMillis(1));
+        delegate.put("path", SecretMap.of(Map.of("key", "renewed"), clock.instant().plusSeconds(10)));
+        cut.resolve(secretURL).test().assertValue(secretMap -> secretMap.get("key").asString().equals("renewed"));
+        assertThat(delegate.resolveCalls()).isEqualTo(2);
+        assertThat(cut.stats().evictionCount()).isEqualTo(1);
+    }
+
+    @Test
+    void should_only_consider_expiration_of_requested_key() {
+        SecretMap secretMap = SecretMap
+            .of(Map.of("expiring", "value", "durable", "value"))
+            .withExpiresAt(SecretURL.from("secret://fake/path:expiring"), clock.instant().plusSeconds(10));
+        delegate.put("path", secretMap);
+        CachingSecretProvider cut = CachingSecretProvider.builder(delegate).clock(clock).build();
+
+        cut.resolve(SecretURL.from("secret://fake/path:durable")).test().assertValueCount(1);
+        clock.advance(Duration.ofSeconds(11));
+        cut.resolve(SecretURL.from("secret://fake/path:durable")).test().assertValueCount(1);
+        assertThat(delegate.resolveCalls()).isEqualTo(1);
+
+        delegate.put("path", SecretMap.of(Map.of("expiring", "renewed", "durable", "value")));
+        cut.resolve(SecretURL.from("secret://fake/path:expiring")).test().assertValue(map -> map.get("expiring").asString().equals("renewed"));
+        assertThat(delegate.resolveCalls()).isEqualTo(2);
+    }
+
+    @Test
+    void should_evict_least_recently_used_entries_above_maximum_size() {
+        delegate.put("a", SecretMap.of(Map.of("key", "a"))).put("b", SecretMap.of(Map.of("key", "b"))).put("c", SecretMap.of(Map.of("key", "c")));
+        CachingSecretProvider cut = CachingSecretProvider.builder(delegate).maximumSize(2).build();
+
+        cut.resolve(SecretURL.from("secret://fake/a")).test().assertValueCount(1);
+        cut.resolve(SecretURL.from("secret://fake/b")).test().assertValueCount(1);
+        cut.resolve(SecretURL.from("secret://fake/a")).test().assertValueCount(1);
+        cut.resolve(SecretURL.from("secret://fake/c")).test().assertValueCount(1);
+        assertThat(delegate.resolveCalls()).isEqualTo(3);
+        assertThat(cut.size()).isEqualTo(2);
+
+        cut.resolve(SecretURL.from("secret://fake/a")).test().assertValueCount(1);
+        assertThat(delegate.resolveCalls()).isEqualTo(3);
+        cut.resolve(SecretURL.from("secret://fake/b")).test().assertValueCount(1);
+        assertThat(delegate.resolveCalls()).isEqualTo(4);
+        assertThat(cut.stats().evictionCount()).isEqualTo(2);
+    }
+
+    @Test
+    void should_evict_entries_above_maximum_weight() {
+        String value = "x".repeat(60);
+        delegate.put("a", SecretMap.of(Map.of("key", value))).put("b", SecretMap.of(Map.of("key", value)));
+        CachingSecretProvider cut = CachingSecretProvider.builder(delegate).maximumWeight(100).concurrencyLevel(1).build();
+
+        cut.resolve(SecretURL.from("secret://fake/a")).test().assertValueCount(1);
+        cut.resolve(SecretURL.from("secret://fake/b")).test().assertValueCount(1);
+        assertThat(cut.size()).isEqualTo(1);
+        cut.resolve(SecretURL.from("secret://fake/b")).test().assertValueCount(1);
+        assertThat(delegate.resolveCalls()).isEqualTo(2);
+        assertThat(cut.stats().evictionCount()).isEqualTo(1);
+    }
+
+    @Test
+    void should_bound_entries_with_maximum_size_and_weight() {
+        delegate.put("a", SecretMap.of(Map.of("k", "a"))).put("b", SecretMap.of(Map.of("k", "b"))).put("c", SecretMap.of(Map.of("k", "c")));
+        CachingSecretProvider cut = CachingSecretProvider.builder(delegate).maximumSize(2).maximumWeight(1000).build();
+
+        cut.resolve(SecretURL.from("secret://fake/a")).test().assertValueCount(1);
+        cut.resolve(SecretURL.from("secret://fake/b")).test().assertValueCount(1);
+        cut.resolve(SecretURL.from("secret://fake/c")).test().assertValueCount(1);
+        assertThat(cut.size()).isEqualTo(2);
+    }
+
+    @Test
+    void should_destroy_off_heap_secret_maps_dropped_by_the_cache() {
+        SecretMap evicted = SecretMap.ofOffHeap(Map.of("key", "evicted"), false, null);
+        SecretMap expiring = SecretMap.ofOffHeap(Map.of("key", "expiring"), false, clock.instant().plusSeconds(10));
+        delegate.put("evicted", evicted).put("expiring", expiring);
+        CachingSecretProvider cut = CachingSecretProvider.builder(delegate).clock(clock).maximumSize(1).build();
+
+        cut.resolve(SecretURL.from("secret://fake/evicted")).test().assertValue(evicted);
+        cut.resolve(SecretURL.from("secret://fake/expiring")).test().assertValue(expiring);
+        assertThat(evicted.isDestroyed()).isTrue();
+        assertThat(evicted.get("key").isDestroyed()).isTrue();
+        assertThat(expiring.isDestroyed()).isFalse();
+
+        clock.advance(Duration.ofSeconds(11));
+        delegate.remove("expiring");
+        cut.resolve(SecretURL.from("secret://fake/expiring")).test().assertNoValues().assertComplete();
+        assertThat(expiring.isDestroyed()).isTrue();
+        assertThat(expiring.get("key").isDestroyed()).isTrue();
+    }
+
+    @Test
+    void should_destroy_replaced_but_not_invalidated_secret_maps() {
+        SecretMap replaced = SecretMap.ofOffHeap(Map.of("key", "replaced"), false, null);
+        delegate.put("path", replaced);
+        CachingSecretProvider cut = CachingSecretProvider.builder(delegate).build();
+        SecretURL secretURL = SecretURL.from("secret://fake/path");
+        cut.watch(secretURL).test();
+        cut.resolve(secretURL).test().assertValue(replaced);
+
+        SecretMap updated = SecretMap.ofOffHeap(Map.of("key", "updated"), false, null);
+        delegate.emit("path", new SecretEvent(SecretEvent.Type.UPDATED, updated));
+        assertThat(replaced.isDestroyed()).isTrue();
+        delegate.emit("path", new SecretEvent(SecretEvent.Type.UPDATED, updated));
+        assertThat(updated.isDestroyed()).isFalse();
+
+        cut.invalidate(secretURL);
+        assertThat(updated.isDestroyed()).isFalse();
+        assertThat(updated.get("key").asString()).isEqualTo("updated");
+    }
+
+    @Test
+    void should_update_cache_on_watch_events() {
+        delegate.put("path", SecretMap.of(Map.of("key", "value")));
+        CachingSecretProvider cut = CachingSecretProvider.builder(delegate).build();
+        SecretURL secretURL = SecretURL.from("secret://fake/path:key");
+        cut.watch(secretURL).test();
+        cut.resolve(secretURL).test().assertValueCount(1);
+
+        SecretMap updated = SecretMap.of(Map.of("key", "updated"));
+        delegate.emit("path", new SecretEvent(SecretEvent.Type.UPDATED, updated));
+        cut.resolve(secretURL).test().assertValue(updated);
+        assertThat(delegate.resolveCalls()).isEqualTo(1);
+
+        delegate.emit("path", new SecretEvent(SecretEvent.Type.DELETED, SecretMap.of(Map.of())));
+        cut.resolve(secretURL).test().assertNoValues().assertComplete();
+        assertThat(delegate.resolveCalls()).isEqualTo(2);
+    }
+
+    @Test
+    void should_not_cache_empty_results_nor_errors() {
+        CachingSecretProvider cut = CachingSecretProvider.builder(delegate).build();
+        SecretURL secretURL = SecretURL.from("secret://fake/path");
+
+        cut.resolve(secretURL).test().assertNoValues().assertComplete();
+        delegate.fail("path", new IllegalStateException("boom"));
+        cut.resolve(secretURL).test().assertError(IllegalStateException.class);
+        delegate.put("path", SecretMap.of(Map.of("key", "value")));
+        cut.resolve(secretURL).test().assertValueCount(1);
+
+        assertThat(delegate.resolveCalls()).isEqualTo(3);
+        assertThat(cut.stats().loadExceptionCount()).isEqualTo(1);
+        assertThat(cut.size()).isEqualTo(1);
+    }
+
+    @Test
+    void should_resolve_all_misses_in_a_single_batch() {
+        SecretMap a = SecretMap.of(Map.of("key", "a"));
+        SecretMap b = SecretMap.of(Map.of("key", "b"));
+        SecretMap c = SecretMap.of(Map.of("key", "c"));
+        List<Collection<SecretURL>> batches = new ArrayList<>();
+        FakeSecretProvider batchProvider = new FakeSecretProvider() {
+            @Override
+            public Flowable<Map.Entry<SecretURL, SecretMap>> resolveAll(Collection<SecretURL> secretURLs, int maxConcurrency) {
+                batches.add(List.copyOf(secretURLs));
+                return super.resolveAll(secretURLs, maxConcurrency);
+            }
+        };
+        batchProvider.put("a", a).put("b", b).put("c", c);
+        CachingSecretProvider cut = CachingSecretProvider.builder(batchProvider).build();
+        cut.resolve(SecretURL.from("secret://fake/a")).test().assertValue(a);
+
+        List<SecretURL> secretURLs = List.of(SecretURL.from("secret://fake/a"), SecretURL.from("secret://fake/b"), SecretURL.from("secret://fake/c"));
+        assertThat(cut.resolveAll(secretURLs).test().assertComplete().values())
+            .containsExactlyInAnyOrder(Map.entry(secretURLs.get(0), a), Map.entry(secretURLs.get(1), b), Map.entry(secretURLs.get(2), c));
+        assertThat(batches).containsExactly(List.of(secretURLs.get(1), secretURLs.get(2)));
+
+        cut.resolveAll(secretURLs).test().assertValueCount(3);
+        assertThat(batches).hasSize(1);
+        assertThat(batchProvider.resolveCalls()).isEqualTo(3);
+        assertThat(cut.stats().hitCount()).isEqualTo(4);
+    }
+
+    @Test
+    void should_refresh_ahead_in_background() {
+        SecretMap initial = SecretMap.of(Map.of("key", "initial"), clock.instant().plusSeconds(100));
+        delegate.put("path", initial);
+        TestScheduler refreshScheduler = new TestScheduler();
+        CachingSecretProvider cut = CachingSecretProvider
+            .builder(delegate)
+            .clock(clock)
+            .refreshAhead(0.8)
+            .refreshScheduler(refreshScheduler)
+            .build();
+        SecretURL secretURL = SecretURL.from("secret://fake/path:key");
+
+        cut.resolve(secretURL).test().assertValue(initial);
+        clock.advance(Duration.ofSeconds(79));
+        cut.resolve(secretURL).test().assertValue(initial);
+        assertThat(cut.refreshStats().refreshes()).isZero();
+
+        clock.advance(Duration.ofSeconds(1));
+        SecretMap renewed = SecretMap.of(Map.of("key", "renewed"), clock.instant().plusSeconds(100));
+        delegate.put("path", renewed);
+        cut.resolve(secretURL).test().assertValue(initial);
+        cut.resolve(secretURL).test().assertValue(initial);
+        assertThat(delegate.resolveCalls()).isEqualTo(1);
+
+        refreshScheduler.triggerActions();
+        assertThat(delegate.resolveCalls()).isEqualTo(2);
+        cut.resolve(secretURL).test().assertValue(renewed);
+        CachingSecretProvider.RefreshStats stats = cut.refreshStats();
+        assertThat(stats.staleServes()).isEqualTo(2);
+        assertThat(stats.refreshes()).isEqualTo(1);
+        assertThat(stats.refreshFailures()).isZero();
+        assertThat(stats.maxRefreshNanos()).isGreaterThanOrEqualTo(stats.averageRefreshNanos());
+    }
+
+    @Test
+    void should_serve_stale_entries_while_revalidating_after_time_to_live() {
+        delegate.put("path", SecretMap.of(Map.of("key", "initial")));
+        TestScheduler refreshScheduler = new TestScheduler();
+        CachingSecretProvider cut = CachingSecretProvider
+            .builder(delegate)
+            .clock(clock)
+            .timeToLive(Duration.ofSeconds(10))
+            .refreshScheduler(refreshScheduler)
+            .build();
+        SecretURL secretURL = SecretURL.from("secret://fake/path:key");
+        cut.resolve(secretURL).test().assertValueCount(1);
+
+        clock.advance(Duration.ofSeconds(10));
+        delegate.put("path", SecretMap.of(Map.of("key", "renewed")));
+        cut.resolve(secretURL).test().assertValue(secretMap -> secretMap.get("key").asString().equals("initial"));
+        refreshScheduler.triggerActions();
+        cut.resolve(secretURL).test().assertValue(secretMap -> secretMap.get("key").asString().equals("renewed"));
+        assertThat(cut.refreshStats().staleServes()).isEqualTo(1);
+        assertThat(delegate.resolveCalls()).isEqualTo(2);
+    }
+
+    @Test
+    void should_retry_failed_refresh_on_next_read() {
+        delegate.put("path", SecretMap.of(Map.of("key", "initial")));
+        TestScheduler refreshScheduler = new TestScheduler();
+        CachingSecretProvider cut = CachingSecretProvider
+            .builder(delegate)
+            .clock(clock)
+            .timeToLive(Duration.ofSeconds(10))
+            .refreshScheduler(refreshScheduler)
+            .build();
+        SecretURL secretURL = SecretURL.from("secret://fake/path");
+        cut.resolve(secretURL).test().assertValueCount(1);
+
+        clock.advance(Duration.ofSeconds(10));
+        delegate.fail("path", new IllegalStateException("boom"));
+        cut.resolve(secretURL).test().assertValueCount(1);
+        refreshScheduler.triggerActions();
+        assertThat(cut.refreshStats().refreshFailures()).isEqualTo(1);
+
+        cut.resolve(secretURL).test().assertValueCount(1);
+        refreshScheduler.triggerActions();
+        assertThat(cut.refreshStats().refreshes()).isEqualTo(2);
+        assertThat(delegate.resolveCalls()).isEqualTo(3);
+    }
+
+    @Test
+    void should_not_put_back_secret_invalidated_while_refreshing() {
+        delegate.put("path", SecretMap.of(Map.of("key", "initial")));
+        TestScheduler refreshScheduler = new TestScheduler();
+        CachingSecretProvider cut = CachingSecretProvider
+            .builder(delegate)
+            .clock(clock)
+            .timeToLive(Duration.ofSeconds(10))
+            .refreshScheduler(refreshScheduler)
+            .build();
+        SecretURL secretURL = SecretURL.from("secret://fake/path");
+        cut.resolve(secretURL).test().assertValueCount(1);
+
+        clock.advance(Duration.ofSeconds(10));
+        cut.resolve(secretURL).test().assertValueCount(1);
+        cut.invalidate(secretURL);
+        refreshScheduler.triggerActions();
+
+        assertThat(delegate.resolveCalls()).isEqualTo(2);
+        assertThat(cut.getIfPresent(secretURL)).isNull();
+    }
+
+    @Test
+    void should_cancel_refreshes_when_stopped() {
+        delegate.put("path", SecretMap.of(Map.of("key", "initial")));
+        TestScheduler refreshScheduler = new TestScheduler();
+        CachingSecretProvider cut = CachingSecretProvider
+            .builder(delegate)
+            .clock(clock)
+            .timeToLive(Duration.ofSeconds(10))
+            .refreshScheduler(refreshScheduler)
+            .build();
+        SecretURL secretURL = SecretURL.from("secret://fake/path");
+        cut.resolve(secretURL).test().assertValueCount(1);
+
+        clock.advance(Duration.ofSeconds(10));
+        cut.resolve(secretURL).test().assertValueCount(1);
+        cut.stop();
+        refreshScheduler.triggerActions();
+        cut.resolve(secretURL).test().assertValueCount(1);
+        refreshScheduler.triggerActions();
+
+        assertThat(delegate.resolveCalls()).isEqualTo(1);
+        assertThat(cut.refreshStats().refreshes()).isEqualTo(1);
+    }
+
+    @Test
+    void should_cache_secret_found_missing_by_refresh() {
+        delegate.put("path", SecretMap.of(Map.of("key", "initial")));
+        TestScheduler refreshScheduler = new TestScheduler();
+        CachingSecretProvider cut = CachingSecretProvider
+            .builder(delegate)
+            .clock(clock)
+            .timeToLive(Duration.ofSeconds(10))
+            .refreshScheduler(refreshScheduler)
+            .negativeCaching(new OnErrorStrategy.ReturnEmpty(true, false, false, false), Duration.ofSeconds(5))
+            .build();
+        SecretURL secretURL = SecretURL.from("secret://fake/path");
+        cut.resolve(secretURL).test().assertValueCount(1);
+
+        clock.advance(Duration.ofSeconds(10));
+        delegate.remove("path");
+        cut.resolve(secretURL).test().assertValueCount(1);
+        refreshScheduler.triggerActions();
+
+        cut.resolve(secretURL).test().assertNoValues().assertComplete();
+        assertThat(delegate.resolveCalls()).isEqualTo(2);
+    }
+
+    @Test
+    void should_cache_not_found_secrets_for_negative_time_to_live() {
+        CachingSecretProvider cut = CachingSecretProvider
+            .builder(delegate)
+            .clock(clock)
+            .negativeCaching(new OnErrorStrategy.ReturnEmpty(true, false, false, false), Duration.ofSeconds(5))
+            .build();
+        SecretURL secretURL = SecretURL.from("secret://fake/missing");
+
+        cut.resolve(secretURL).test().assertNoValues().assertComplete();
+        cut.resolve(secretURL).test().assertNoValues().assertComplete();
+        assertThat(delegate.resolveCalls()).isEqualTo(1);
+        assertThat(cut.stats().hitCount()).isEqualTo(1);
+
+        clock.advance(Duration.ofSeconds(5));
+        cut.resolve(secretURL).test().assertNoValues().assertComplete();
+        assertThat(delegate.resolveCalls()).isEqualTo(2);
+    }
+
+    @Test
+    void should_cache_errors_selected_by_flags() {
+        CachingSecretProvider cut = CachingSecretProvider
+            .builder(delegate)
+            .clock(clock)
+            .negativeCaching(new OnErrorStrategy.ReturnEmpty(false, false, true, false), Duration.ofSeconds(5))
+            .build();
+        SecretAccessDeniedException denied = new SecretAccessDeniedException("denied");
+        delegate.fail("denied", denied).fail("failing", new IllegalStateException("boom"));
+
+        cut
+            .resolve(SecretURL.from("secret://fake/denied"))
+            .test()
+            .assertError(error -> error instanceof SecretAccessDeniedException && error.getCause() == denied);
+        cut
+            .resolve(SecretURL.from("secret://fake/denied"))
+            .test()
+            .assertError(error -> error instanceof SecretAccessDeniedException && error.getCause() == denied);
+        assertThat(delegate.resolveCalls()).isEqualTo(1);
+
+        cut.resolve(SecretURL.from("secret://fake/failing")).test().assertError(IllegalStateException.class);
+        cut.resolve(SecretURL.from("secret://fake/failing")).test().assertError(IllegalStateException.class);
+        cut.resolve(SecretURL.from("secret://fake/missing")).test().assertComplete();
+        cut.resolve(SecretURL.from("secret://fake/missing")).test().assertComplete();
+        assertThat(delegate.resolveCalls()).isEqualTo(5);
+    }
+
+    @Test
+    void should_cache_any_error_when_enabled() {
+        CachingSecretProvider cut = CachingSecretProvider
+            .builder(delegate)
+            .clock(clock)
+            .negativeCaching(new OnErrorStrategy.ReturnEmpty(false, false, false, true), Duration.ofSeconds(5))
+            .build();
+        IllegalStateException boom = new IllegalStateException("boom");
+        delegate.fail("failing", boom);
+
+        SecretURL secretURL = SecretURL.from("secret://fake/failing");
+        Throwable failure = catchThrowable(() -> cut.resolve(secretURL).blockingGet());
+        Throwable firstReplay = catchThrowable(() -> cut.resolve(secretURL).blockingGet());
+        Throwable secondReplay = catchThrowable(() -> cut.resolve(secretURL).blockingGet());
+
+        assertThat(List.of(failure, firstReplay, secondReplay))
+            .allSatisfy(error -> assertThat(error).isInstanceOf(SecretManagerException.class).hasCause(boom).hasMessage("boom"))
+            .doesNotHaveDuplicates();
+        assertThat(delegate.resolveCalls()).isEqualTo(1);
+    }
+
+    @Test
+    void should_replay_cached_error_after_cached_not_found_secrets_in_batch() {
+        CachingSecretProvider cut = CachingSecretProvider
+            .builder(delegate)
+            .clock(clock)
+            .negativeCaching(new OnErrorStrategy.ReturnEmpty(true, false, false, true), Duration.ofSeconds(5))
+            .build();
+        IllegalStateException boom = new IllegalStateException("boom");
+        delegate.fail("failing", boom);
+        SecretURL missing = SecretURL.from("secret://fake/missing");
+        SecretURL failing = SecretURL.from("secret://fake/failing");
+        cut.resolve(missing).test().assertComplete();
+        cut.resolve(failing).test().assertError(SecretManagerException.class);
+
+        cut
+            .resolveAll(List.of(missing, failing))
+            .test()
+            .assertNoValues()
+            .assertError(error -> error instanceof SecretManagerException && error.getCause() == boom);
+        assertThat(delegate.resolveCalls()).isEqualTo(2);
+    }
+
+    @Test
+    void should_forget_negative_outcome_when_secret_is_created() {
+        CachingSecretProvider cut = CachingSecretProvider
+            .builder(delegate)
+            .clock(clock)
+            .negativeCaching(new OnErrorStrategy.ReturnEmpty(true, false, false, false), Duration.ofMinutes(5))
+            .build();
+        SecretURL secretURL = SecretURL.from("secret://fake/path");
+        cut.watch(secretURL).test();
+        cut.resolve(secretURL).test().assertNoValues().assertComplete();
+
+        SecretMap created = SecretMap.of(Map.of("key", "value"));
+        delegate.emit("path", new SecretEvent(SecretEvent.Type.CREATED, created));
+        cut.resolve(secretURL).test().assertValue(created);
+        assertThat(delegate.resolveCalls()).isEqualTo(1);
+    }
+
+    @Test
+    void should_not_resolve_all_cached_not_found_secrets_again() {
+        SecretMap a = SecretMap.of(Map.of("key", "a"));
+        delegate.put("a", a);
+        CachingSecretProvider cut = CachingSecretProvider
+            .builder(delegate)
+            .clock(clock)
+            .negativeCaching(new OnErrorStrategy.ReturnEmpty(true, false, false, false), Duration.ofSeconds(5))
+            .build();
+        List<SecretURL> secretURLs = List.of(SecretURL.from("secret://fake/a"), SecretURL.from("secret://fake/missing"));
+
+        cut.resolveAll(secretURLs).test().assertValueCount(1).assertComplete();
+        cut.resolveAll(secretURLs).test().assertValue(Map.entry(secretURLs.get(0), a)).assertComplete();
+        assertThat(delegate.resolveCalls()).isEqualTo(2);
+    }
+
+    @Test
+    void should_reject_invalid_bounds() {
+        assertThatCode(() -> CachingSecretProvider.builder(delegate).maximumSize(0)).isInstanceOf(IllegalArgumentException.class);
+        assertThatCode(() -> CachingSecretProvider.builder(delegate).maximumWeight(-1)).isInstanceOf(IllegalArgumentException.class);
+        assertThatCode(() -> CachingSecretProvider.builder(delegate).concurrencyLevel(0)).isInstanceOf(IllegalArgumentException.class);
+        assertThatCode(() -> CachingSecretProvider.builder(delegate).refreshAhead(0)).isInstanceOf(IllegalArgumentException.class);
+        assertThatCode(() -> CachingSecretProvider.builder(delegate).refreshAhead(1.1)).isInstanceOf(IllegalArgumentException.class);
+        assertThatCode(() -> CachingSecretProvider.builder(delegate).timeToLive(Duration.ZERO)).isInstanceOf(IllegalArgumentException.class);
+        OnErrorStrategy.ReturnEmpty returnEmpty = new OnErrorStrategy.ReturnEmpty(true, true, true, true);
+        assertThatCode(() -> CachingSecretProvider.builder(delegate).negativeCaching(returnEmpty, Duration.ZERO))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.secrets.api.plugin;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+import io.gravitee.secrets.api.plugin.CircuitBreaker.State;
+import io.gravitee.secrets.api.plugin.CircuitBreaker.Transition;
+import io.gravitee.secrets.api.util.ManualClock;
+import io.reactivex.rxjava3.subscribers.TestSubscriber;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author GraviteeSource Team
+ */
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class CircuitBreakerTest {
+
+    static final CircuitBreaker.Config CONFIG = new CircuitBreaker.Config(4, 4, 0.5, 0.5, Duration.ofSeconds(1), Duration.ofSeconds(10), 2);
+
+    private ManualClock clock;
+    private CircuitBreaker cut;
+
+    @BeforeEach
+    void before() {
+        clock = new ManualClock(Instant.parse("2024-01-01T00:00:00Z"));
+        cut = new CircuitBreaker(CONFIG, clock);
+    }
+
+    @Test
+    void should_open_when_failure_rate_is_reached() {
+        TestSubscriber<Transition> transitions = cut.transitions().test();
+        fail(10);
+        fail(10);
+        succeed(10);
+        assertThat(cut.state()).isEqualTo(State.CLOSED);
+
+        succeed(10);
+        assertThat(cut.state()).isEqualTo(State.OPEN);
+        assertThat(cut.tryAcquire()).isEqualTo(CircuitBreaker.REJECTED);
+        transitions.assertValue(new Transition(State.CLOSED, State.OPEN, clock.instant()));
+    }
+
+    @Test
+    void should_open_when_slow_call_rate_is_reached() {
+        succeed(1000);
+        succeed(10);
+        succeed(5000);
+        succeed(10);
+
+        assertThat(cut.state()).isEqualTo(State.OPEN);
+    }
+
+    @Test
+    void should_evaluate_rates_over_last_calls_only() {
+        fail(10);
+        for (int i = 0; i < 4; i++) {
+            succeed(10);
+        }
+        fail(10);
+        assertThat(cut.state()).isEqualTo(State.CLOSED);
+
+        fail(10);
+        assertThat(cut.state()).isEqualTo(State.OPEN);
+    }
+
+    @Test
+    void should_allow_probes_after_open_duration_and_close_when_they_succeed() {
+        open();
+        TestSubscriber<Transition> transitions = cut.transitions().test();
+        clock.advance(Duration.ofSeconds(9));
+        assertThat(cut.tryAcquire()).isEqualTo(CircuitBreaker.REJECTED);
+
+        clock.advance(Duration.ofSeconds(1));
+        long firstProbe = cut.tryAcquire();
+        long secondProbe = cut.tryAcquire();
+        assertThat(firstProbe).isNotEqualTo(CircuitBreaker.REJECTED);
+        assertThat(secondProbe).isNotEqualTo(CircuitBreaker.REJECTED);
+        assertThat(cut.tryAcquire()).isEqualTo(CircuitBreaker.REJECTED);
+        assertThat(cut.state()).isEqualTo(State.HALF_OPEN);
+
+        cut.onSuccess(firstProbe, 10);
+        cut.onSuccess(secondProbe, 10);
+        assertThat(cut.state()).isEqualTo(State.CLOSED);
+        assertThat(cut.tryAcquire()).isNotEqualTo(CircuitBreaker.REJECTED);
+        transitions.assertValues(
+            new Transition(State.OPEN, State.HALF_OPEN, clock.instant()),
+            new Transition(State.HALF_OPEN, State.CLOSED, clock.instant())
+        );
+    }
+
+    @Test
+    void should_reopen_when_a_probe_fails() {
+        open();
+        clock.advance(Duration.ofSeconds(10));
+        cut.onError(cut.tryAcquire(), 10);
+
+        assertThat(cut.state()).isEqualTo(State.OPEN);
+        assertThat(cut.tryAcquire()).isEqualTo(CircuitBreaker.REJECTED);
+    }
+
+    @Test
+    void should_reopen_when_a_probe_is_slow() {
+        open();
+        clock.advance(Duration.ofSeconds(10));
+        cut.onSuccess(cut.tryAcquire(), 1000);
+
+        assertThat(cut.state()).isEqualTo(State.OPEN);
+    }
+
+    @Test
+    void should_give_back_probe_of_cancelled_call() {
+        open();
+        clock.advance(Duration.ofSeconds(10));
+        cut.tryAcquire();
+        cut.onCancel(cut.tryAcquire());
+
+        assertThat(cut.tryAcquire()).isNotEqualTo(CircuitBreaker.REJECTED);
+        assertThat(cut.tryAcquire()).isEqualTo(CircuitBreaker.REJECTED);
+    }
+
+    @Test
+    void should_start_with_empty_window_once_closed_again() {
+        open();
+        clock.advance(Duration.ofSeconds(10));
+        long firstProbe = cut.tryAcquire();
+        long secondProbe = cut.tryAcquire();
+        cut.onSuccess(firstProbe, 10);
+        cut.onSuccess(secondProbe, 10);
+
+        for (int i = 0; i < 3; i++) {
+            fail(10);
+        }
+        assertThat(cut.state()).isEqualTo(State.CLOSED);
+    }
+
+    @Test
+    void should_ignore_outcomes_of_calls_allowed_before_a_transition() {
+        long closedCall = cut.tryAcquire();
+        open();
+        clock.advance(Duration.ofSeconds(10));
+        long probe = cut.tryAcquire();
+
+        cut.onSuccess(closedCall, 5000);
+        cut.onCancel(closedCall);
+        assertThat(cut.state()).isEqualTo(State.HALF_OPEN);
+        assertThat(cut.tryAcquire()).isNotEqualTo(CircuitBreaker.REJECTED);
+        assertThat(cut.tryAcquire()).isEqualTo(CircuitBreaker.REJECTED);
+
+        cut.onError(probe, 10);
+        assertThat(cut.state()).isEqualTo(State.OPEN);
+    }
+
+    @Test
+    void should_publish_transitions_in_order_when_observers_trigger_other_transitions() {
+        List<Transition> observed = new ArrayList<>();
+        cut
+            .transitions()
+            .subscribe(transition -> {
+                observed.add(transition);
+                if (observed.size() == 1) {
+                    clock.advance(Duration.ofSeconds(10));
+                    cut.onError(cut.tryAcquire(), 10);
+                }
+            });
+
+        open();
+
+        assertThat(observed)
+            .extracting(Transition::from, Transition::to)
+            .containsExactly(tuple(State.CLOSED, State.OPEN), tuple(State.OPEN, State.HALF_OPEN), tuple(State.HALF_OPEN, State.OPEN));
+    }
+
+    @Test
+    void should_reject_invalid_config() {
+        assertThatThrownBy(() -> new CircuitBreaker.Config(4, 5, 0.5, 0.5, Duration.ofSeconds(1), Duration.ofSeconds(10), 2))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new CircuitBreaker.Config(4, 4, 0, 0.5, Duration.ofSeconds(1), Duration.ofSeconds(10), 2))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new CircuitBreaker.Config(4, 4, 0.5, 0.5, Duration.ZERO, Duration.ofSeconds(10), 2))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new CircuitBreaker.Config(4, 4, 0.5, 0.5, Duration.ofSeconds(1), Duration.ofSeconds(10), 0))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private void open() {
+        for (int i = 0; i < 4; i++) {
+            fail(10);
+        }
+        assertThat(cut.state()).isEqualTo(State.OPEN);
+    }
+
+    private void succeed(long durationMillis) {
+        cut.onSuccess(cut.tryAcquire(), durationMillis);
+    }
+
+    private void fail(long durationMillis) {
+        cut.onError(cut.tryAcquire(), durationMillis);
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.secrets.api.plugin;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.gravitee.secrets.api.core.SecretEvent;
+import io.gravitee.secrets.api.core.SecretMap;
+import io.gravitee.secrets.api.core.SecretURL;
+import io.reactivex.rxjava3.core.Flowable;
+import io.reactivex.rxjava3.core.Maybe;
+import io.reactivex.rxjava3.observers.TestObserver;
+import io.reactivex.rxjava3.subjects.MaybeSubject;
+import io.reactivex.rxjava3.subscribers.TestSubscriber;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author GraviteeSource Team
+ */
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class CoalescingSecretProviderTest {
+
+    private static final SecretURL SECRET_URL = SecretURL.from("secret://pending/path:key");
+
+    private PendingSecretProvider delegate;
+    private CoalescingSecretProvider cut;
+
+    @BeforeEach
+    void before() {
+        delegate = new PendingSecretProvider();
+        cut = new CoalescingSecretProvider(delegate);
+    }
+
+    @Test
+    void should_call_provider_once_for_concurrent_subscribers() throws Exception {
+        int subscribers = 20;
+        ExecutorService executor = Executors.newFixedThreadPool(subscribers);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<TestObserver<SecretMap>>> futures = new ArrayList<>();
+            for (int i = 0; i < subscribers; i++) {
+                futures.add(
+                    executor.submit(() -> {
+                        start.await();
+                        return cut.resolve(SECRET_URL).test();
+                    })
+                );
+            }
+            start.countDown();
+            List<TestObserver<SecretMap>> observers = new ArrayList<>();
+            for (Future<TestObserver<SecretMap>> future : futures) {
+                observers.add(future.get());
+            }
+
+            assertThat(delegate.calls.get()).isEqualTo(1);
+            SecretMap secretMap = SecretMap.of(Map.of("key", "value"));
+            delegate.result.onSuccess(secretMap);
+            observers.forEach(observer -> observer.assertValue(secretMap).assertComplete());
+            assertThat(cut.inFlight()).isZero();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void should_share_errors() {
+        TestObserver<SecretMap> first = cut.resolve(SECRET_URL).test();
+        TestObserver<SecretMap> second = cut.resolve(SecretURL.from("secret://pending/path:other")).test();
+        delegate.result.onError(new IllegalStateException("boom"));
+
+        first.assertError(IllegalStateException.class);
+        second.assertError(IllegalStateException.class);
+        assertThat(delegate.calls.get()).isEqualTo(1);
+        assertThat(cut.inFlight()).isZero();
+    }
+
+    @Test
+    void should_call_provider_again_once_resolved() {
+        cut.resolve(SECRET_URL).test();
+        delegate.result.onComplete();
+        cut.resolve(SECRET_URL).test().assertNoValues().assertComplete();
+        assertThat(delegate.calls.get()).isEqualTo(2);
+    }
+
+    @Test
+    void should_not_coalesce_different_paths() {
+        cut.resolve(SECRET_URL).test();
+        cut.resolve(SecretURL.from("secret://pending/other")).test();
+        assertThat(delegate.calls.get()).isEqualTo(2);
+        assertThat(cut.inFlight()).isEqualTo(2);
+    }
+
+    @Test
+    void should_cancel_call_only_when_all_subscribers_dispose() {
+        TestObserver<SecretMap> first = cut.resolve(SECRET_URL).test();
+        TestObserver<SecretMap> second = cut.resolve(SECRET_URL).test();
+
+        first.dispose();
+        assertThat(delegate.cancelled.get()).isZero();
+        assertThat(cut.inFlight()).isEqualTo(1);
+
+        second.dispose();
+        assertThat(delegate.cancelled.get()).isEqualTo(1);
+        assertThat(cut.inFlight()).isZero();
+
+        TestObserver<SecretMap> third = cut.resolve(SECRET_URL).test();
+        assertThat(delegate.calls.get()).isEqualTo(2);
+        SecretMap secretMap = SecretMap.of(Map.of("key", "value"));
+        delegate.result.onSuccess(secretMap);
+        third.assertValue(secretMap);
+    }
+
+    @Test
+    void should_share_result_with_subscriber_arriving_while_call_terminates() {
+        SecretMap secretMap = SecretMap.of(Map.of("key", "value"));
+        List<TestObserver<SecretMap>> late = new ArrayList<>();
+        delegate.onResult = () -> late.add(cut.resolve(SECRET_URL).test());
+        TestObserver<SecretMap> first = cut.resolve(SECRET_URL).test();
+        delegate.result.onSuccess(secretMap);
+
+        first.assertValue(secretMap);
+        assertThat(late).singleElement().satisfies(observer -> observer.assertValue(secretMap));
+        assertThat(delegate.calls.get()).isEqualTo(1);
+        assertThat(cut.inFlight()).isZero();
+    }
+
+    @Test
+    void should_never_complete_empty_when_subscribing_concurrently_with_termination() throws Exception {
+        SecretMap secretMap = SecretMap.of(Map.of("key", "value"));
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            for (int i = 0; i < 1_000; i++) {
+                PendingSecretProvider provider = new PendingSecretProvider();
+                CoalescingSecretProvider coalescing = new CoalescingSecretProvider(provider);
+                coalescing.resolve(SECRET_URL).test();
+                CountDownLatch start = new CountDownLatch(1);
+                Future<?> resolution = executor.submit(() -> {
+                    start.await();
+                    provider.result.onSuccess(secretMap);
+                    return null;
+                });
+                start.countDown();
+                TestObserver<SecretMap> late = coalescing.resolve(SECRET_URL).test();
+                resolution.get();
+
+                late.awaitDone(5, TimeUnit.SECONDS).assertValue(secretMap);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void should_coalesce_batch_and_single_resolutions() {
+        TestObserver<SecretMap> single = cut.resolve(SECRET_URL).test();
+        TestSubscriber<Map.Entry<SecretURL, SecretMap>> batch = cut.resolveAll(List.of(SECRET_URL)).test();
+        assertThat(delegate.calls.get()).isEqualTo(1);
+
+        SecretMap secretMap = SecretMap.of(Map.of("key", "value"));
+        delegate.result.onSuccess(secretMap);
+        single.assertValue(secretMap);
+        batch.assertValue(Map.entry(SECRET_URL, secretMap)).assertComplete();
+    }
+
+    /**
+     * Provider which resolutions are pending until the test signals the result
+     */
+    private static class PendingSecretProvider implements SecretProvider {
+
+        private final MaybeSubject<SecretMap> result = MaybeSubject.create();
+        private final AtomicInteger calls = new AtomicInteger();
+        private final AtomicInteger cancelled = new AtomicInteger();
+        // runs when the result is signaled, before it reaches the decorator
+        private volatile Runnable onResult = () -> {};
+
+        @Override
+        public Maybe<SecretMap> resolve(SecretURL secretURL) {
+            return Maybe.defer(() -> {
+                calls.incrementAndGet();
+                return result.doOnDispose(cancelled::incrementAndGet).doOnEvent((secretMap, throwable) -> onResult.run());
+            });
+        }
+
+        @Override
+        public Flowable<SecretEvent> watch(SecretURL secretURL) {
+            return Flowable.empty();
+        }
+    }
+}
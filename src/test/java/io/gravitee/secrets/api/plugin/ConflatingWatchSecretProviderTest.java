@@ -0,0 +1,158 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.secrets.api.plugin;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+
+import io.gravitee.secrets.api.core.SecretEvent;
+import io.gravitee.secrets.api.core.SecretMap;
+import io.gravitee.secrets.api.core.SecretURL;
+import io.reactivex.rxjava3.schedulers.TestScheduler;
+import io.reactivex.rxjava3.subscribers.TestSubscriber;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author GraviteeSource Team
+ */
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class ConflatingWatchSecretProviderTest {
+
+    private static final SecretURL SECRET_URL = SecretURL.from("secret://fake/path");
+
+    private FakeSecretProvider delegate;
+    private TestScheduler testScheduler;
+    private ConflatingWatchSecretProvider cut;
+
+    @BeforeEach
+    void before() {
+        delegate = new FakeSecretProvider();
+        testScheduler = new TestScheduler();
+        cut = new ConflatingWatchSecretProvider(delegate, Duration.ofMillis(500), Duration.ofSeconds(2), 2, testScheduler);
+    }
+
+    @Test
+    void should_emit_latest_update_once_quiet() {
+        TestSubscriber<SecretEvent> subscriber = cut.watch(SECRET_URL).test();
+        for (int i = 0; i < 100; i++) {
+            delegate.emit("path", updated(i));
+        }
+        testScheduler.advanceTimeBy(499, TimeUnit.MILLISECONDS);
+        subscriber.assertNoValues();
+
+        testScheduler.advanceTimeBy(1, TimeUnit.MILLISECONDS);
+        subscriber.assertValue(updated(99));
+        assertThat(cut.conflated()).isEqualTo(99);
+
+        testScheduler.advanceTimeBy(10, TimeUnit.SECONDS);
+        subscriber.assertValueCount(1);
+    }
+
+    @Test
+    void should_conflate_deletion_followed_by_creation_into_update() {
+        TestSubscriber<SecretEvent> subscriber = cut.watch(SECRET_URL).test();
+        delegate.emit("path", new SecretEvent(SecretEvent.Type.DELETED, SecretMap.of(Map.of())));
+        delegate.emit("path", new SecretEvent(SecretEvent.Type.CREATED, SecretMap.of(Map.of("key", "created"))));
+        testScheduler.advanceTimeBy(500, TimeUnit.MILLISECONDS);
+
+        subscriber.assertValue(new SecretEvent(SecretEvent.Type.UPDATED, SecretMap.of(Map.of("key", "created"))));
+        assertThat(cut.conflated()).isEqualTo(1);
+    }
+
+    @Test
+    void should_cancel_out_creation_followed_by_deletion() {
+        TestSubscriber<SecretEvent> subscriber = cut.watch(SECRET_URL).test();
+        delegate.emit("path", new SecretEvent(SecretEvent.Type.CREATED, SecretMap.of(Map.of("key", "created"))));
+        delegate.emit("path", updated(1));
+        delegate.emit("path", new SecretEvent(SecretEvent.Type.DELETED, SecretMap.of(Map.of())));
+        testScheduler.advanceTimeBy(500, TimeUnit.MILLISECONDS);
+
+        subscriber.assertNoValues();
+        assertThat(cut.conflated()).isEqualTo(3);
+    }
+
+    @Test
+    void should_emit_at_most_every_max_delay_during_a_continuous_burst() {
+        TestSubscriber<SecretEvent> subscriber = cut.watch(SECRET_URL).test();
+        for (int i = 0; i < 100; i++) {
+            delegate.emit("path", updated(i));
+            testScheduler.advanceTimeBy(100, TimeUnit.MILLISECONDS);
+        }
+        testScheduler.advanceTimeBy(1, TimeUnit.SECONDS);
+
+        assertThat(subscriber.values()).hasSize(5).last().isEqualTo(updated(99));
+        assertThat(cut.conflated()).isEqualTo(95);
+    }
+
+    @Test
+    void should_start_max_delay_with_the_first_event_of_a_burst() {
+        TestSubscriber<SecretEvent> subscriber = cut.watch(SECRET_URL).test();
+        testScheduler.advanceTimeBy(1700, TimeUnit.MILLISECONDS);
+        for (int i = 0; i < 20; i++) {
+            delegate.emit("path", updated(i));
+            testScheduler.advanceTimeBy(100, TimeUnit.MILLISECONDS);
+            if (i < 19) {
+                subscriber.assertNoValues();
+            }
+        }
+
+        subscriber.assertValue(updated(19));
+    }
+
+    @Test
+    void should_count_events_of_all_watches() {
+        TestSubscriber<SecretEvent> subscriber = cut.watch(SECRET_URL).test();
+        TestSubscriber<SecretEvent> other = cut.watch(SecretURL.from("secret://fake/other")).test();
+        delegate.emit("path", updated(1)).emit("path", updated(2)).emit("other", updated(1)).emit("other", updated(2));
+        testScheduler.advanceTimeBy(500, TimeUnit.MILLISECONDS);
+
+        subscriber.assertValue(updated(2));
+        other.assertValue(updated(2));
+        assertThat(cut.conflated()).isEqualTo(2);
+    }
+
+    @Test
+    void should_drop_oldest_events_when_consumer_is_slow() {
+        TestSubscriber<SecretEvent> subscriber = cut.watch(SECRET_URL).test(0);
+        for (int i = 0; i < 3; i++) {
+            delegate.emit("path", updated(i));
+            testScheduler.advanceTimeBy(500, TimeUnit.MILLISECONDS);
+        }
+        subscriber.assertNoValues();
+
+        subscriber.requestMore(3);
+        subscriber.assertValues(updated(1), updated(2));
+        assertThat(cut.dropped()).isEqualTo(1);
+    }
+
+    @Test
+    void should_reject_invalid_configuration() {
+        assertThatCode(() -> new ConflatingWatchSecretProvider(delegate, Duration.ZERO, Duration.ofSeconds(1), 1, testScheduler))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatCode(() -> new ConflatingWatchSecretProvider(delegate, Duration.ofSeconds(1), Duration.ofSeconds(1), 0, testScheduler))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static SecretEvent updated(int version) {
+        return new SecretEvent(SecretEvent.Type.UPDATED, SecretMap.of(Map.of("key", "v" + version)));
+    }
+}
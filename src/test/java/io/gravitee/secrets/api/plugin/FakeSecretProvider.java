@@ -0,0 +1,138 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.secrets.api.plugin;
+
+import io.gravitee.secrets.api.core.SecretEvent;
+import io.gravitee.secrets.api.core.SecretMap;
+import io.gravitee.secrets.api.core.SecretURL;
+import io.reactivex.rxjava3.core.Flowable;
+import io.reactivex.rxjava3.core.Maybe;
+import io.reactivex.rxjava3.core.Notification;
+import io.reactivex.rxjava3.core.Scheduler;
+import io.reactivex.rxjava3.processors.PublishProcessor;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory provider for tests: secrets are keyed by path and calls are counted.
+ *
+ * @author GraviteeSource Team
+ */
+public class FakeSecretProvider implements SecretProvider {
+
+    private final Map<String, SecretMap> secrets = new ConcurrentHashMap<>();
+    private final Map<String, Throwable> errors = new ConcurrentHashMap<>();
+    private final PublishProcessor<Map.Entry<String, SecretEvent>> events = PublishProcessor.create();
+    private final PublishProcessor<Notification<SecretEvent>> watchEnds = PublishProcessor.create();
+    private final AtomicInteger resolveCalls = new AtomicInteger();
+    private final AtomicInteger watchCalls = new AtomicInteger();
+    private volatile Duration latency = Duration.ZERO;
+    private volatile Scheduler latencyScheduler;
+
+    public FakeSecretProvider put(String path, SecretMap secretMap) {
+        errors.remove(path);
+        secrets.put(path, secretMap);
+        return this;
+    }
+
+    public FakeSecretProvider remove(String path) {
+        errors.remove(path);
+        secrets.remove(path);
+        return this;
+    }
+
+    /**
+     * Make resolutions of a path fail until {@link #put(String, SecretMap)} or {@link #remove(String)} is called
+     */
+    public FakeSecretProvider fail(String path, Throwable error) {
+        errors.put(path, error);
+        return this;
+    }
+
+    /**
+     * Delay the outcome of resolutions, failures included, by a latency measured by a scheduler
+     */
+    public FakeSecretProvider latency(Duration latency, Scheduler scheduler) {
+        this.latencyScheduler = scheduler;
+        this.latency = latency;
+        return this;
+    }
+
+    public FakeSecretProvider emit(String path, SecretEvent event) {
+        if (event.type() == SecretEvent.Type.DELETED) {
+            secrets.remove(path);
+        } else {
+            secrets.put(path, event.secretMap());
+        }
+        events.onNext(Map.entry(path, event));
+        return this;
+    }
+
+    /**
+     * Terminate current watches, with an error if not null
+     */
+    public FakeSecretProvider endWatches(Throwable error) {
+        watchEnds.onNext(error == null ? Notification.createOnComplete() : Notification.createOnError(error));
+        return this;
+    }
+
+    public int resolveCalls() {
+        return resolveCalls.get();
+    }
+
+    public int watchCalls() {
+        return watchCalls.get();
+    }
+
+    public boolean isWatched() {
+        return events.hasSubscribers();
+    }
+
+    @Override
+    public Maybe<SecretMap> resolve(SecretURL secretURL) {
+        return Maybe.defer(() -> {
+            resolveCalls.incrementAndGet();
+            if (latency.isZero()) {
+                return outcome(secretURL);
+            }
+            return Maybe.timer(latency.toMillis(), TimeUnit.MILLISECONDS, latencyScheduler).flatMap(tick -> outcome(secretURL));
+        });
+    }
+
+    private Maybe<SecretMap> outcome(SecretURL secretURL) {
+        Throwable error = errors.get(secretURL.path());
+        if (error != null) {
+            return Maybe.error(error);
+        }
+        SecretMap secretMap = secrets.get(secretURL.path());
+        return secretMap == null ? Maybe.empty() : Maybe.just(secretMap);
+    }
+
+    @Override
+    public Flowable<SecretEvent> watch(SecretURL secretURL) {
+        return Flowable.defer(() -> {
+            watchCalls.incrementAndGet();
+            return events
+                .filter(entry -> entry.getKey().equals(secretURL.path()))
+                .map(entry -> Notification.createOnNext(entry.getValue()))
+                .mergeWith(watchEnds)
+                .dematerialize(notification -> notification);
+        });
+    }
+}
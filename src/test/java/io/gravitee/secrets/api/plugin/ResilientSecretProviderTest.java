@@ -0,0 +1,251 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.secrets.api.plugin;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.gravitee.secrets.api.core.SecretEvent;
+import io.gravitee.secrets.api.core.SecretMap;
+import io.gravitee.secrets.api.core.SecretURL;
+import io.gravitee.secrets.api.errors.BulkheadFullException;
+import io.gravitee.secrets.api.errors.CircuitBreakerOpenException;
+import io.gravitee.secrets.api.errors.SecretAccessDeniedException;
+import io.gravitee.secrets.api.errors.SecretManagerException;
+import io.gravitee.secrets.api.plugin.CircuitBreaker.State;
+import io.gravitee.secrets.api.plugin.CircuitBreaker.Transition;
+import io.gravitee.secrets.api.util.ManualClock;
+import io.reactivex.rxjava3.core.Flowable;
+import io.reactivex.rxjava3.core.Maybe;
+import io.reactivex.rxjava3.observers.TestObserver;
+import io.reactivex.rxjava3.schedulers.TestScheduler;
+import io.reactivex.rxjava3.subscribers.TestSubscriber;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author GraviteeSource Team
+ */
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class ResilientSecretProviderTest {
+
+    private static final SecretURL SECRET_URL = SecretURL.from("secret://fake/path");
+    private static final SecretMap SECRET_MAP = SecretMap.of(Map.of("key", "value"));
+
+    private FakeSecretProvider delegate;
+    private ManualClock clock;
+    private TestScheduler testScheduler;
+    private ResilientSecretProvider cut;
+
+    @BeforeEach
+    void before() {
+        delegate = new FakeSecretProvider().put("path", SECRET_MAP);
+        clock = new ManualClock(Instant.parse("2024-01-01T00:00:00Z"));
+        testScheduler = new TestScheduler();
+        cut = new ResilientSecretProvider(delegate, CircuitBreakerTest.CONFIG, 2, Duration.ofSeconds(10), clock, testScheduler);
+    }
+
+    @Test
+    void should_signal_delegate_errors_as_secret_manager_exceptions() {
+        RuntimeException failure = new RuntimeException("unreachable");
+        delegate.fail("path", failure);
+
+        cut.resolve(SECRET_URL).test().assertError(e -> e instanceof SecretManagerException && e.getCause() == failure);
+    }
+
+    @Test
+    void should_open_circuit_after_failures_and_reject_calls_without_calling_delegate() {
+        TestSubscriber<Transition> transitions = cut.circuitBreaker().transitions().test();
+        openCircuit();
+
+        cut.resolve(SECRET_URL).test().assertError(CircuitBreakerOpenException.class);
+        assertThat(delegate.resolveCalls()).isEqualTo(4);
+        assertThat(cut.concurrentCalls()).isZero();
+        transitions.assertValue(new Transition(State.CLOSED, State.OPEN, clock.instant()));
+    }
+
+    @Test
+    void should_not_count_access_denied_as_failure() {
+        SecretAccessDeniedException denied = new SecretAccessDeniedException("denied");
+        delegate.fail("path", denied);
+        for (int i = 0; i < 10; i++) {
+            cut.resolve(SECRET_URL).test().assertError(denied);
+        }
+
+        assertThat(cut.circuitBreaker().state()).isEqualTo(State.CLOSED);
+    }
+
+    @Test
+    void should_open_circuit_on_slow_calls() {
+        delegate.latency(Duration.ofSeconds(2), testScheduler);
+        for (int i = 0; i < 4; i++) {
+            TestObserver<SecretMap> observer = cut.resolve(SECRET_URL).test();
+            advance(Duration.ofSeconds(2));
+            observer.assertValue(SECRET_MAP);
+        }
+
+        assertThat(cut.circuitBreaker().state()).isEqualTo(State.OPEN);
+        cut.resolve(SECRET_URL).test().assertError(CircuitBreakerOpenException.class);
+    }
+
+    @Test
+    void should_close_circuit_when_probes_succeed_after_open_duration() {
+        openCircuit();
+        delegate.put("path", SECRET_MAP);
+        clock.advance(Duration.ofSeconds(10));
+
+        cut.resolve(SECRET_URL).test().assertValue(SECRET_MAP);
+        assertThat(cut.circuitBreaker().state()).isEqualTo(State.HALF_OPEN);
+        cut.resolve(SECRET_URL).test().assertValue(SECRET_MAP);
+        assertThat(cut.circuitBreaker().state()).isEqualTo(State.CLOSED);
+    }
+
+    @Test
+    void should_reject_calls_beyond_max_concurrent_calls() {
+        delegate.latency(Duration.ofSeconds(1), testScheduler);
+        TestObserver<SecretMap> first = cut.resolve(SECRET_URL).test();
+        TestObserver<SecretMap> second = cut.resolve(SECRET_URL).test();
+
+        cut.resolve(SECRET_URL).test().assertError(BulkheadFullException.class);
+        assertThat(delegate.resolveCalls()).isEqualTo(2);
+        assertThat(cut.concurrentCalls()).isEqualTo(2);
+
+        advance(Duration.ofSeconds(1));
+        first.assertValue(SECRET_MAP);
+        second.assertValue(SECRET_MAP);
+        assertThat(cut.concurrentCalls()).isZero();
+        TestObserver<SecretMap> third = cut.resolve(SECRET_URL).test();
+        advance(Duration.ofSeconds(1));
+        third.assertValue(SECRET_MAP);
+    }
+
+    @Test
+    void should_release_calls_and_probes_when_disposed() {
+        openCircuit();
+        delegate.put("path", SECRET_MAP).latency(Duration.ofMillis(500), testScheduler);
+        clock.advance(Duration.ofSeconds(10));
+        cut.resolve(SECRET_URL).test().dispose();
+        cut.resolve(SECRET_URL).test().dispose();
+        assertThat(cut.concurrentCalls()).isZero();
+
+        TestObserver<SecretMap> probe = cut.resolve(SECRET_URL).test();
+        advance(Duration.ofMillis(500));
+        probe.assertValue(SECRET_MAP);
+        assertThat(cut.circuitBreaker().state()).isEqualTo(State.HALF_OPEN);
+    }
+
+    @Test
+    void should_time_out_calls_record_them_as_failures_and_release_them() {
+        delegate.latency(Duration.ofSeconds(20), testScheduler);
+        for (int i = 0; i < 4; i++) {
+            TestObserver<SecretMap> observer = cut.resolve(SECRET_URL).test();
+            advance(Duration.ofSeconds(10));
+            observer.assertError(e -> e instanceof SecretManagerException && e.getCause() instanceof TimeoutException);
+            assertThat(cut.concurrentCalls()).isZero();
+        }
+
+        assertThat(cut.circuitBreaker().state()).isEqualTo(State.OPEN);
+    }
+
+    @Test
+    void should_time_out_batch_resolution_as_a_whole() {
+        delegate.put("other", SECRET_MAP).latency(Duration.ofSeconds(6), testScheduler);
+        TestSubscriber<Map.Entry<SecretURL, SecretMap>> subscriber = cut
+            .resolveAll(List.of(SECRET_URL, SecretURL.from("secret://fake/other")), 1)
+            .test();
+
+        advance(Duration.ofSeconds(6));
+        subscriber.assertValueCount(1).assertNotComplete();
+        advance(Duration.ofSeconds(4));
+        subscriber.assertValueCount(1).assertError(e -> e.getCause() instanceof TimeoutException);
+        assertThat(cut.concurrentCalls()).isZero();
+    }
+
+    @Test
+    void should_reject_invalid_call_timeout() {
+        assertThatThrownBy(() -> new ResilientSecretProvider(delegate, CircuitBreakerTest.CONFIG, 2, Duration.ZERO, clock, testScheduler))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void should_release_calls_when_delegate_throws() {
+        IllegalStateException bug = new IllegalStateException("bug");
+        FakeSecretProvider throwing = new FakeSecretProvider() {
+            @Override
+            public Maybe<SecretMap> resolve(SecretURL secretURL) {
+                throw bug;
+            }
+
+            @Override
+            public Flowable<Map.Entry<SecretURL, SecretMap>> resolveAll(Collection<SecretURL> secretURLs, int maxConcurrency) {
+                throw bug;
+            }
+        };
+        cut = new ResilientSecretProvider(throwing, CircuitBreakerTest.CONFIG, 2, Duration.ofSeconds(10), clock, testScheduler);
+
+        for (int i = 0; i < 2; i++) {
+            cut.resolve(SECRET_URL).test().assertError(e -> e instanceof SecretManagerException && e.getCause() == bug);
+            assertThat(cut.concurrentCalls()).isZero();
+        }
+        cut.resolveAll(List.of(SECRET_URL)).test().assertError(e -> e instanceof SecretManagerException && e.getCause() == bug);
+        assertThat(cut.concurrentCalls()).isZero();
+    }
+
+    @Test
+    void should_guard_batch_resolution_as_one_call() {
+        delegate.put("other", SECRET_MAP);
+        cut
+            .resolveAll(List.of(SECRET_URL, SecretURL.from("secret://fake/other")))
+            .test()
+            .assertValueCount(2)
+            .assertComplete();
+
+        openCircuit();
+        cut.resolveAll(List.of(SECRET_URL)).test().assertError(CircuitBreakerOpenException.class);
+    }
+
+    @Test
+    void should_not_guard_watch() {
+        openCircuit();
+        TestSubscriber<SecretEvent> subscriber = cut.watch(SECRET_URL).test();
+        SecretEvent event = new SecretEvent(SecretEvent.Type.UPDATED, SECRET_MAP);
+        delegate.emit("path", event);
+
+        subscriber.assertValue(event);
+    }
+
+    private void openCircuit() {
+        delegate.fail("path", new RuntimeException("unreachable"));
+        for (int i = 0; i < 4; i++) {
+            cut.resolve(SECRET_URL).test().assertError(SecretManagerException.class);
+        }
+        assertThat(cut.circuitBreaker().state()).isEqualTo(State.OPEN);
+    }
+
+    private void advance(Duration duration) {
+        clock.advance(duration);
+        testScheduler.advanceTimeBy(duration.toMillis(), TimeUnit.MILLISECONDS);
+    }
+}
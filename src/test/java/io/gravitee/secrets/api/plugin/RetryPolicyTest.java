@@ -0,0 +1,91 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.secrets.api.plugin;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.gravitee.secrets.api.errors.BulkheadFullException;
+import io.gravitee.secrets.api.errors.CircuitBreakerOpenException;
+import io.gravitee.secrets.api.errors.SecretAccessDeniedException;
+import io.gravitee.secrets.api.errors.SecretManagerException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.TimeoutException;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author GraviteeSource Team
+ */
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class RetryPolicyTest {
+
+    private final RetryPolicy cut = new RetryPolicy(
+        Duration.ofMillis(100),
+        Duration.ofSeconds(1),
+        2,
+        Duration.ofSeconds(10),
+        RetryPolicy::isTransient
+    );
+
+    @Test
+    void should_grow_max_backoff_exponentially_up_to_max() {
+        assertThat(cut.maxBackoffMillis(0)).isEqualTo(100);
+        assertThat(cut.maxBackoffMillis(1)).isEqualTo(200);
+        assertThat(cut.maxBackoffMillis(3)).isEqualTo(800);
+        assertThat(cut.maxBackoffMillis(4)).isEqualTo(1000);
+        assertThat(cut.maxBackoffMillis(Integer.MAX_VALUE)).isEqualTo(1000);
+    }
+
+    @Test
+    void should_pick_backoff_between_zero_and_max_backoff() {
+        Random random = new Random(42);
+        for (int retry = 0; retry < 10; retry++) {
+            for (int i = 0; i < 100; i++) {
+                assertThat(cut.backoffMillis(retry, random)).isBetween(0L, cut.maxBackoffMillis(retry));
+            }
+        }
+    }
+
+    @Test
+    void should_classify_transient_errors() {
+        assertThat(RetryPolicy.isTransient(new SecretManagerException("service unavailable"))).isTrue();
+        assertThat(RetryPolicy.isTransient(new SecretManagerException(new IOException("connection reset")))).isTrue();
+        assertThat(RetryPolicy.isTransient(new UncheckedIOException(new IOException("connection reset")))).isTrue();
+        assertThat(RetryPolicy.isTransient(new TimeoutException())).isTrue();
+        assertThat(RetryPolicy.isTransient(new BulkheadFullException("full"))).isTrue();
+
+        assertThat(RetryPolicy.isTransient(new SecretAccessDeniedException("denied"))).isFalse();
+        assertThat(RetryPolicy.isTransient(new CircuitBreakerOpenException("open"))).isFalse();
+        assertThat(RetryPolicy.isTransient(new SecretManagerException(new IllegalArgumentException("bad path")))).isFalse();
+        assertThat(RetryPolicy.isTransient(new IllegalStateException())).isFalse();
+    }
+
+    @Test
+    void should_reject_invalid_policy() {
+        assertThatThrownBy(() -> new RetryPolicy(Duration.ZERO, Duration.ofSeconds(1), 2, Duration.ofSeconds(10), e -> true))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new RetryPolicy(Duration.ofSeconds(2), Duration.ofSeconds(1), 2, Duration.ofSeconds(10), e -> true))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new RetryPolicy(Duration.ofMillis(100), Duration.ofSeconds(1), 0.5, Duration.ofSeconds(10), e -> true))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> cut.withRetryable(null)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
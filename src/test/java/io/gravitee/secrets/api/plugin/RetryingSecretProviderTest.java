@@ -0,0 +1,192 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.secrets.api.plugin;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.gravitee.secrets.api.core.SecretEvent;
+import io.gravitee.secrets.api.core.SecretMap;
+import io.gravitee.secrets.api.core.SecretURL;
+import io.gravitee.secrets.api.errors.SecretAccessDeniedException;
+import io.gravitee.secrets.api.errors.SecretManagerException;
+import io.reactivex.rxjava3.observers.TestObserver;
+import io.reactivex.rxjava3.schedulers.TestScheduler;
+import io.reactivex.rxjava3.subscribers.TestSubscriber;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.random.RandomGenerator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author GraviteeSource Team
+ */
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class RetryingSecretProviderTest {
+
+    private static final SecretURL SECRET_URL = SecretURL.from("secret://fake/path");
+    private static final SecretMap SECRET_MAP = SecretMap.of(Map.of("key", "value"));
+    // backoffs are half of the max backoff: 50, 100, 200, 400, 800 ms
+    private static final RetryPolicy POLICY = new RetryPolicy(
+        Duration.ofMillis(100),
+        Duration.ofSeconds(10),
+        2,
+        Duration.ofSeconds(1),
+        RetryPolicy::isTransient
+    );
+    private static final RandomGenerator HALF = new RandomGenerator() {
+        @Override
+        public long nextLong() {
+            return 0;
+        }
+
+        @Override
+        public long nextLong(long bound) {
+            return bound / 2;
+        }
+    };
+
+    private FakeSecretProvider delegate;
+    private TestScheduler testScheduler;
+    private RetryingSecretProvider cut;
+
+    @BeforeEach
+    void before() {
+        delegate = new FakeSecretProvider();
+        testScheduler = new TestScheduler();
+        cut = new RetryingSecretProvider(delegate, POLICY, testScheduler, () -> HALF);
+    }
+
+    @Test
+    void should_retry_transient_errors_with_backoff() {
+        delegate.fail("path", new SecretManagerException("service unavailable"));
+        TestObserver<SecretMap> observer = cut.resolve(SECRET_URL).test();
+        assertThat(delegate.resolveCalls()).isEqualTo(1);
+
+        testScheduler.advanceTimeBy(49, TimeUnit.MILLISECONDS);
+        assertThat(delegate.resolveCalls()).isEqualTo(1);
+        testScheduler.advanceTimeBy(1, TimeUnit.MILLISECONDS);
+        assertThat(delegate.resolveCalls()).isEqualTo(2);
+        observer.assertNotComplete().assertNoErrors();
+
+        delegate.put("path", SECRET_MAP);
+        testScheduler.advanceTimeBy(100, TimeUnit.MILLISECONDS);
+        observer.assertValue(SECRET_MAP);
+        assertThat(delegate.resolveCalls()).isEqualTo(3);
+        assertThat(cut.retries()).isEqualTo(2);
+    }
+
+    @Test
+    void should_signal_last_error_once_max_elapsed_time_is_reached() {
+        SecretManagerException error = new SecretManagerException("service unavailable");
+        delegate.fail("path", error);
+        TestObserver<SecretMap> observer = cut.resolve(SECRET_URL).test();
+
+        testScheduler.advanceTimeBy(749, TimeUnit.MILLISECONDS);
+        observer.assertNoErrors();
+        testScheduler.advanceTimeBy(1, TimeUnit.MILLISECONDS);
+        observer.assertError(error);
+        // retries after 50, 150, 350 and 750 ms, the next one would be after 1550 ms
+        assertThat(delegate.resolveCalls()).isEqualTo(5);
+    }
+
+    @Test
+    void should_not_retry_non_retryable_errors() {
+        SecretAccessDeniedException denied = new SecretAccessDeniedException("denied");
+        delegate.fail("path", denied);
+
+        cut.resolve(SECRET_URL).test().assertError(denied);
+        assertThat(delegate.resolveCalls()).isEqualTo(1);
+        assertThat(cut.retries()).isZero();
+    }
+
+    @Test
+    void should_use_retry_classifier_of_policy() {
+        cut = new RetryingSecretProvider(delegate, POLICY.withRetryable(error -> false), testScheduler, () -> HALF);
+        delegate.fail("path", new SecretManagerException("service unavailable"));
+
+        cut.resolve(SECRET_URL).test().assertError(SecretManagerException.class);
+        assertThat(delegate.resolveCalls()).isEqualTo(1);
+    }
+
+    @Test
+    void should_resubscribe_watch_after_error() {
+        TestSubscriber<SecretEvent> subscriber = cut.watch(SECRET_URL).test();
+        delegate.endWatches(new SecretManagerException("connection reset"));
+        subscriber.assertNoErrors();
+
+        testScheduler.advanceTimeBy(50, TimeUnit.MILLISECONDS);
+        assertThat(delegate.watchCalls()).isEqualTo(2);
+        SecretEvent event = new SecretEvent(SecretEvent.Type.UPDATED, SECRET_MAP);
+        delegate.emit("path", event);
+        subscriber.assertValue(event).assertNotComplete();
+        assertThat(cut.resubscriptions()).isEqualTo(1);
+    }
+
+    @Test
+    void should_resubscribe_watch_after_completion() {
+        TestSubscriber<SecretEvent> subscriber = cut.watch(SECRET_URL).test();
+        delegate.endWatches(null);
+        subscriber.assertNotComplete();
+
+        testScheduler.advanceTimeBy(50, TimeUnit.MILLISECONDS);
+        assertThat(delegate.watchCalls()).isEqualTo(2);
+        assertThat(delegate.isWatched()).isTrue();
+    }
+
+    @Test
+    void should_reset_watch_backoff_on_event() {
+        cut.watch(SECRET_URL).test();
+        delegate.endWatches(null);
+        testScheduler.advanceTimeBy(50, TimeUnit.MILLISECONDS);
+        delegate.endWatches(null);
+        testScheduler.advanceTimeBy(100, TimeUnit.MILLISECONDS);
+        assertThat(delegate.watchCalls()).isEqualTo(3);
+
+        delegate.emit("path", new SecretEvent(SecretEvent.Type.UPDATED, SECRET_MAP));
+        delegate.endWatches(null);
+        testScheduler.advanceTimeBy(50, TimeUnit.MILLISECONDS);
+        assertThat(delegate.watchCalls()).isEqualTo(4);
+    }
+
+    @Test
+    void should_fail_watch_once_max_elapsed_time_is_reached() {
+        SecretManagerException error = new SecretManagerException("connection reset");
+        TestSubscriber<SecretEvent> subscriber = cut.watch(SECRET_URL).test();
+        for (long backoffMillis = 50; backoffMillis <= 400; backoffMillis *= 2) {
+            delegate.endWatches(error);
+            testScheduler.advanceTimeBy(backoffMillis, TimeUnit.MILLISECONDS);
+        }
+        subscriber.assertNoErrors();
+
+        delegate.endWatches(error);
+        subscriber.assertError(error);
+        assertThat(delegate.watchCalls()).isEqualTo(5);
+    }
+
+    @Test
+    void should_fail_watch_on_non_retryable_error() {
+        SecretAccessDeniedException denied = new SecretAccessDeniedException("denied");
+        TestSubscriber<SecretEvent> subscriber = cut.watch(SECRET_URL).test();
+        delegate.endWatches(denied);
+
+        subscriber.assertError(denied);
+        assertThat(delegate.watchCalls()).isEqualTo(1);
+    }
+}
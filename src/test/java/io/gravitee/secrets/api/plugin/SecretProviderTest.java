@@ -0,0 +1,112 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.secrets.api.plugin;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.gravitee.secrets.api.core.SecretEvent;
+import io.gravitee.secrets.api.core.SecretMap;
+import io.gravitee.secrets.api.core.SecretURL;
+import io.reactivex.rxjava3.core.Flowable;
+import io.reactivex.rxjava3.core.Maybe;
+import io.reactivex.rxjava3.subjects.MaybeSubject;
+import io.reactivex.rxjava3.subscribers.TestSubscriber;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author GraviteeSource Team
+ */
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class SecretProviderTest {
+
+    @Test
+    void should_resolve_all_distinct_secrets() {
+        SecretMap a = SecretMap.of(Map.of("k1", "a1", "k2", "a2"));
+        SecretMap b = SecretMap.of(Map.of("key", "b"));
+        FakeSecretProvider provider = new FakeSecretProvider().put("a", a).put("b", b);
+
+        TestSubscriber<Map.Entry<SecretURL, SecretMap>> subscriber = provider
+            .resolveAll(
+                List.of(
+                    SecretURL.from("secret://fake/a:k1"),
+                    SecretURL.from("secret://fake/a:k2"),
+                    SecretURL.from("secret://fake/b"),
+                    SecretURL.from("secret://fake/missing")
+                )
+            )
+            .test();
+
+        subscriber.assertComplete();
+        assertThat(subscriber.values())
+            .containsExactlyInAnyOrder(Map.entry(SecretURL.from("secret://fake/a"), a), Map.entry(SecretURL.from("secret://fake/b"), b));
+        assertThat(provider.resolveCalls()).isEqualTo(3);
+    }
+
+    @Test
+    void should_limit_concurrent_resolutions() {
+        PendingSecretProvider provider = new PendingSecretProvider();
+        List<SecretURL> secretURLs = IntStream.range(0, 5).mapToObj(i -> SecretURL.from("secret://pending/" + i)).toList();
+
+        TestSubscriber<Map.Entry<SecretURL, SecretMap>> subscriber = provider.resolveAll(secretURLs, 2).test();
+        assertThat(provider.pending).containsOnlyKeys("0", "1");
+
+        SecretMap secretMap = SecretMap.of(Map.of("key", "value"));
+        provider.pending.get("0").onSuccess(secretMap);
+        assertThat(provider.pending).containsOnlyKeys("0", "1", "2");
+        for (int i = 1; i < 5; i++) {
+            provider.pending.get(String.valueOf(i)).onSuccess(secretMap);
+        }
+        subscriber.assertValueCount(5).assertComplete();
+    }
+
+    @Test
+    void should_signal_errors_after_other_secrets() {
+        FakeSecretProvider provider = new FakeSecretProvider()
+            .put("a", SecretMap.of(Map.of("key", "a")))
+            .put("c", SecretMap.of(Map.of("key", "c")))
+            .fail("b", new IllegalStateException("boom"));
+
+        provider
+            .resolveAll(List.of(SecretURL.from("secret://fake/a"), SecretURL.from("secret://fake/b"), SecretURL.from("secret://fake/c")))
+            .test()
+            .assertValueCount(2)
+            .assertError(IllegalStateException.class);
+    }
+
+    /**
+     * Provider which resolutions are pending until the test signals the result
+     */
+    private static class PendingSecretProvider implements SecretProvider {
+
+        private final Map<String, MaybeSubject<SecretMap>> pending = new ConcurrentHashMap<>();
+
+        @Override
+        public Maybe<SecretMap> resolve(SecretURL secretURL) {
+            return Maybe.defer(() -> pending.computeIfAbsent(secretURL.path(), path -> MaybeSubject.create()));
+        }
+
+        @Override
+        public Flowable<SecretEvent> watch(SecretURL secretURL) {
+            return Flowable.empty();
+        }
+    }
+}
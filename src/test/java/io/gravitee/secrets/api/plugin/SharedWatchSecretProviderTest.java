@@ -0,0 +1,143 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.secrets.api.plugin;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.gravitee.secrets.api.core.SecretEvent;
+import io.gravitee.secrets.api.core.SecretMap;
+import io.gravitee.secrets.api.core.SecretURL;
+import io.reactivex.rxjava3.core.Flowable;
+import io.reactivex.rxjava3.subscribers.TestSubscriber;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author GraviteeSource Team
+ */
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class SharedWatchSecretProviderTest {
+
+    private static final SecretEvent CREATED = new SecretEvent(SecretEvent.Type.CREATED, SecretMap.of(Map.of("key", "created")));
+    private static final SecretEvent UPDATED = new SecretEvent(SecretEvent.Type.UPDATED, SecretMap.of(Map.of("key", "updated")));
+
+    private FakeSecretProvider delegate;
+    private SharedWatchSecretProvider cut;
+
+    @BeforeEach
+    void before() {
+        delegate = new FakeSecretProvider();
+        cut = new SharedWatchSecretProvider(delegate);
+    }
+
+    @Test
+    void should_share_one_upstream_watch_per_path() {
+        TestSubscriber<SecretEvent> first = cut.watch(SecretURL.from("secret://fake/path:key")).test();
+        TestSubscriber<SecretEvent> second = cut.watch(SecretURL.from("secret://fake/path:other")).test();
+        TestSubscriber<SecretEvent> third = cut.watch(SecretURL.from("secret://fake/path")).test();
+
+        delegate.emit("path", CREATED);
+
+        assertThat(delegate.watchCalls()).isEqualTo(1);
+        assertThat(cut.watches()).isEqualTo(1);
+        first.assertValue(CREATED);
+        second.assertValue(CREATED);
+        third.assertValue(CREATED);
+    }
+
+    @Test
+    void should_not_share_watches_of_different_paths() {
+        TestSubscriber<SecretEvent> first = cut.watch(SecretURL.from("secret://fake/a")).test();
+        TestSubscriber<SecretEvent> second = cut.watch(SecretURL.from("secret://fake/b")).test();
+
+        delegate.emit("a", CREATED);
+
+        assertThat(delegate.watchCalls()).isEqualTo(2);
+        first.assertValue(CREATED);
+        second.assertNoValues();
+    }
+
+    @Test
+    void should_replay_latest_event_to_late_subscribers() {
+        SecretURL secretURL = SecretURL.from("secret://fake/path");
+        TestSubscriber<SecretEvent> first = cut.watch(secretURL).test();
+        delegate.emit("path", CREATED);
+        delegate.emit("path", UPDATED);
+
+        TestSubscriber<SecretEvent> late = cut.watch(secretURL).test();
+
+        first.assertValues(CREATED, UPDATED);
+        late.assertValue(UPDATED);
+        assertThat(delegate.watchCalls()).isEqualTo(1);
+    }
+
+    @Test
+    void should_close_upstream_watch_when_last_subscriber_leaves() {
+        SecretURL secretURL = SecretURL.from("secret://fake/path");
+        TestSubscriber<SecretEvent> first = cut.watch(secretURL).test();
+        TestSubscriber<SecretEvent> second = cut.watch(secretURL).test();
+        delegate.emit("path", CREATED);
+
+        first.cancel();
+        assertThat(delegate.isWatched()).isTrue();
+        second.cancel();
+        assertThat(delegate.isWatched()).isFalse();
+        assertThat(cut.watches()).isZero();
+
+        TestSubscriber<SecretEvent> next = cut.watch(secretURL).test();
+        next.assertNoValues();
+        assertThat(delegate.watchCalls()).isEqualTo(2);
+    }
+
+    @Test
+    void should_open_a_new_watch_after_an_error() {
+        FakeSecretProvider failing = new FakeSecretProvider() {
+            @Override
+            public Flowable<SecretEvent> watch(SecretURL secretURL) {
+                return watchCalls() == 0 ? super.watch(secretURL).mergeWith(Flowable.error(new IllegalStateException("boom"))) : super.watch(secretURL);
+            }
+        };
+        cut = new SharedWatchSecretProvider(failing);
+        SecretURL secretURL = SecretURL.from("secret://fake/path");
+
+        cut.watch(secretURL).test().assertError(IllegalStateException.class);
+        assertThat(cut.watches()).isZero();
+        cut.watch(secretURL).test().assertNoErrors();
+        assertThat(failing.watchCalls()).isEqualTo(2);
+    }
+
+    @Test
+    void should_not_join_a_watch_once_terminated() {
+        SecretURL secretURL = SecretURL.from("secret://fake/path");
+        List<TestSubscriber<SecretEvent>> joined = new ArrayList<>();
+        TestSubscriber<SecretEvent> first = cut
+            .watch(secretURL)
+            .doOnError(error -> joined.add(cut.watch(secretURL).test()))
+            .test();
+
+        delegate.endWatches(new IllegalStateException("boom"));
+
+        first.assertError(IllegalStateException.class);
+        assertThat(joined).singleElement().satisfies(subscriber -> subscriber.assertNoErrors().assertNotComplete());
+        assertThat(delegate.watchCalls()).isEqualTo(2);
+        assertThat(cut.watches()).isEqualTo(1);
+    }
+}
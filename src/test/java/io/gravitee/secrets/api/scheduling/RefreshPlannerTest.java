@@ -0,0 +1,194 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.secrets.api.scheduling;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+
+import io.gravitee.secrets.api.core.Secret;
+import io.gravitee.secrets.api.spec.Resolution;
+import io.gravitee.secrets.api.util.ManualClock;
+import io.reactivex.rxjava3.schedulers.TestScheduler;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author GraviteeSource Team
+ */
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class RefreshPlannerTest {
+
+    private static final Duration TICK = Duration.ofMillis(100);
+
+    private ManualClock clock;
+    private TestScheduler testScheduler;
+    private RefreshScheduler<String> scheduler;
+
+    @BeforeEach
+    void before() {
+        clock = new ManualClock(Instant.parse("2024-01-01T00:00:00Z"));
+        testScheduler = new TestScheduler();
+        scheduler = new RefreshScheduler<>(TICK, clock, testScheduler);
+    }
+
+    @Test
+    void should_spread_refreshes_of_a_shared_expiration_before_it() {
+        Random random = new Random(42);
+        RefreshPlanner<String> cut = new RefreshPlanner<>(scheduler, RefreshPlannerTest::provider, 0.1, Duration.ofMinutes(1), () -> random);
+        List<Long> refreshTimes = new ArrayList<>();
+        List<String> refreshed = new ArrayList<>();
+        cut
+            .due()
+            .subscribe(batch -> {
+                refreshTimes.add(clock.millis());
+                refreshed.addAll(batch.items());
+            });
+
+        Instant expiresAt = clock.instant().plus(Duration.ofMinutes(10));
+        Secret secret = new Secret("value", false, expiresAt);
+        for (int i = 0; i < 500; i++) {
+            cut.schedule("secret-" + i, secret);
+        }
+        advance(Duration.ofMinutes(10));
+
+        assertThat(refreshed).hasSize(500).doesNotHaveDuplicates();
+        assertThat(refreshTimes)
+            .allSatisfy(time ->
+                assertThat(time).isBetween(expiresAt.minus(Duration.ofMinutes(1)).minus(TICK).toEpochMilli(), expiresAt.toEpochMilli())
+            );
+        RefreshPlanner.Stats stats = cut.stats();
+        assertThat(stats.scheduled()).isEqualTo(500);
+        assertThat(stats.refreshed()).isEqualTo(500);
+        assertThat(stats.peakUnplannedCalls()).isEqualTo(500);
+        assertThat(stats.peakCalls()).isLessThanOrEqualTo(2);
+        assertThat(stats.batches()).isEqualTo(refreshTimes.size());
+    }
+
+    @Test
+    void should_coalesce_items_of_a_provider_due_together() {
+        RefreshPlanner<String> cut = new RefreshPlanner<>(scheduler, RefreshPlannerTest::provider, 0, Duration.ZERO);
+        List<RefreshBatch<String>> batches = new ArrayList<>();
+        cut.due().subscribe(batches::add);
+
+        Resolution poll = new Resolution(Resolution.Type.POLL, Duration.ofSeconds(5));
+        for (int i = 0; i < 5; i++) {
+            cut.schedule("secret-" + i, poll);
+        }
+        advance(Duration.ofSeconds(5));
+
+        assertThat(batches).extracting(RefreshBatch::provider).containsExactlyInAnyOrder("vault", "aws");
+        assertThat(batches)
+            .anySatisfy(batch -> {
+                assertThat(batch.provider()).isEqualTo("vault");
+                assertThat(batch.items()).containsExactlyInAnyOrder("secret-0", "secret-2", "secret-4");
+            })
+            .anySatisfy(batch -> {
+                assertThat(batch.provider()).isEqualTo("aws");
+                assertThat(batch.items()).containsExactlyInAnyOrder("secret-1", "secret-3");
+            });
+        assertThat(cut.stats()).isEqualTo(new RefreshPlanner.Stats(5, 5, 2, 5, 2));
+    }
+
+    @Test
+    void should_jitter_within_ratio_of_interval() {
+        Random random = new Random(42);
+        RefreshPlanner<String> cut = new RefreshPlanner<>(scheduler, RefreshPlannerTest::provider, 0.5, Duration.ofHours(1), () -> random);
+        for (int i = 0; i < 100; i++) {
+            RefreshPlanner.Planned<String> planned = cut.schedule(
+                "secret-" + i,
+                new Resolution(Resolution.Type.TTL, Duration.ofSeconds(10))
+            );
+            assertThat(planned.deadlineMillis()).isBetween(clock.millis() + 4_900, clock.millis() + 9_900);
+        }
+    }
+
+    @Test
+    void should_refresh_one_tick_before_the_end_of_the_interval_without_jitter() {
+        RefreshPlanner<String> cut = new RefreshPlanner<>(scheduler, RefreshPlannerTest::provider, 0, Duration.ZERO);
+
+        RefreshPlanner.Planned<String> planned = cut.schedule("secret-1", new Resolution(Resolution.Type.TTL, Duration.ofSeconds(10)));
+
+        assertThat(planned.deadlineMillis()).isEqualTo(clock.millis() + 10_000 - TICK.toMillis());
+    }
+
+    @Test
+    void should_not_overflow_when_interval_is_unbounded() {
+        RefreshPlanner<String> cut = new RefreshPlanner<>(scheduler, RefreshPlannerTest::provider);
+        List<RefreshBatch<String>> batches = new ArrayList<>();
+        cut.due().subscribe(batches::add);
+
+        RefreshPlanner.Planned<String> planned = cut.schedule(
+            "secret-1",
+            new Resolution(Resolution.Type.POLL, Duration.ofMillis(Long.MAX_VALUE))
+        );
+        advance(Duration.ofMinutes(1));
+
+        assertThat(planned.deadlineMillis()).isGreaterThan(clock.millis());
+        assertThat(batches).isEmpty();
+        assertThat(cut.size()).isEqualTo(1);
+    }
+
+    @Test
+    void should_no_longer_count_cancelled_and_rescheduled_refreshes() {
+        RefreshPlanner<String> cut = new RefreshPlanner<>(scheduler, RefreshPlannerTest::provider, 0, Duration.ZERO);
+        List<RefreshBatch<String>> batches = new ArrayList<>();
+        cut.due().subscribe(batches::add);
+
+        Resolution poll = new Resolution(Resolution.Type.POLL, Duration.ofSeconds(5));
+        RefreshPlanner.Planned<String> planned = cut.schedule("secret-0", poll);
+        planned = cut.reschedule(planned, poll);
+        planned = cut.reschedule(planned, poll);
+        RefreshPlanner.Planned<String> cancelled = cut.schedule("secret-1", poll);
+        assertThat(cancelled.cancel()).isTrue();
+        assertThat(cancelled.cancel()).isFalse();
+        cut.schedule("secret-2", poll);
+        advance(Duration.ofSeconds(5));
+
+        assertThat(planned.isExpired()).isTrue();
+        assertThat(cancelled.isCancelled()).isTrue();
+        assertThat(batches).singleElement().satisfies(batch -> assertThat(batch.items()).containsExactlyInAnyOrder("secret-0", "secret-2"));
+        assertThat(cut.stats().peakUnplannedCalls()).isEqualTo(2);
+    }
+
+    @Test
+    void should_reject_invalid_jitter() {
+        assertThatCode(() -> new RefreshPlanner<>(scheduler, RefreshPlannerTest::provider, 1.5, Duration.ZERO))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatCode(() -> new RefreshPlanner<>(scheduler, RefreshPlannerTest::provider, 0.1, Duration.ofSeconds(-1)))
+            .isInstanceOf(IllegalArgumentException.class);
+        RefreshPlanner<String> cut = new RefreshPlanner<>(scheduler, RefreshPlannerTest::provider);
+        assertThatCode(() -> cut.schedule("once", new Resolution(Resolution.Type.ONCE, null))).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static String provider(String item) {
+        return Integer.parseInt(item.substring(item.indexOf('-') + 1)) % 2 == 0 ? "vault" : "aws";
+    }
+
+    private void advance(Duration duration) {
+        for (long i = 0; i < duration.toMillis() / TICK.toMillis(); i++) {
+            clock.advance(TICK);
+            testScheduler.advanceTimeBy(TICK.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+}
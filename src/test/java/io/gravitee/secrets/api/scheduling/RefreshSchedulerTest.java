@@ -0,0 +1,123 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.secrets.api.scheduling;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+
+import io.gravitee.secrets.api.core.Secret;
+import io.gravitee.secrets.api.spec.Resolution;
+import io.gravitee.secrets.api.util.ManualClock;
+import io.reactivex.rxjava3.schedulers.TestScheduler;
+import io.reactivex.rxjava3.subscribers.TestSubscriber;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author GraviteeSource Team
+ */
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class RefreshSchedulerTest {
+
+    private static final Duration TICK = Duration.ofMillis(100);
+
+    private ManualClock clock;
+    private TestScheduler testScheduler;
+    private RefreshScheduler<String> cut;
+
+    @BeforeEach
+    void before() {
+        clock = new ManualClock(Instant.parse("2024-01-01T00:00:00Z"));
+        testScheduler = new TestScheduler();
+        cut = new RefreshScheduler<>(TICK, clock, testScheduler);
+    }
+
+    @Test
+    void should_emit_due_items_in_batches() {
+        TestSubscriber<List<String>> subscriber = cut.due().test();
+        cut.scheduleAfter("a", Duration.ofSeconds(1));
+        cut.scheduleAfter("b", Duration.ofSeconds(1));
+        cut.scheduleAfter("c", Duration.ofSeconds(2));
+
+        advance(Duration.ofMillis(900));
+        subscriber.assertNoValues();
+        advance(TICK);
+        subscriber.assertValueCount(1);
+        assertThat(subscriber.values().get(0)).containsExactlyInAnyOrder("a", "b");
+        advance(Duration.ofSeconds(1));
+        subscriber.assertValueCount(2);
+        assertThat(subscriber.values().get(1)).containsExactly("c");
+        assertThat(cut.size()).isZero();
+    }
+
+    @Test
+    void should_not_emit_cancelled_items() {
+        TestSubscriber<List<String>> subscriber = cut.due().test();
+        cut.scheduleAfter("a", Duration.ofSeconds(1)).cancel();
+        cut.scheduleAt("b", clock.instant().plusSeconds(1));
+
+        advance(Duration.ofSeconds(1));
+        subscriber.assertValueCount(1);
+        assertThat(subscriber.values().get(0)).containsExactly("b");
+    }
+
+    @Test
+    void should_schedule_from_resolution() {
+        TestSubscriber<List<String>> subscriber = cut.due().test();
+        cut.schedule("poll", new Resolution(Resolution.Type.POLL, Duration.ofSeconds(5)));
+        cut.schedule("ttl", new Resolution(Resolution.Type.TTL, Duration.ofSeconds(10)));
+
+        advance(Duration.ofSeconds(5));
+        assertThat(subscriber.values()).containsExactly(List.of("poll"));
+        advance(Duration.ofSeconds(5));
+        assertThat(subscriber.values()).containsExactly(List.of("poll"), List.of("ttl"));
+    }
+
+    @Test
+    void should_not_schedule_once_resolution() {
+        assertThatCode(() -> cut.schedule("once", new Resolution(Resolution.Type.ONCE, null)))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void should_schedule_from_expiration() {
+        TestSubscriber<List<String>> subscriber = cut.due().test();
+        cut.schedule("expiring", new Secret("value", false, clock.instant().plusSeconds(3)));
+
+        advance(Duration.ofMillis(2900));
+        subscriber.assertNoValues();
+        advance(TICK);
+        assertThat(subscriber.values()).containsExactly(List.of("expiring"));
+    }
+
+    @Test
+    void should_not_schedule_without_expiration() {
+        assertThatCode(() -> cut.schedule("forever", new Secret("value"))).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private void advance(Duration duration) {
+        for (long i = 0; i < duration.toMillis() / TICK.toMillis(); i++) {
+            clock.advance(TICK);
+            testScheduler.advanceTimeBy(TICK.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+}
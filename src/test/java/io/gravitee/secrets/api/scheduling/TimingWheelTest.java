@@ -0,0 +1,131 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.secrets.api.scheduling;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author GraviteeSource Team
+ */
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class TimingWheelTest {
+
+    @Test
+    void should_return_items_in_batch_when_due() {
+        TimingWheel<String> wheel = new TimingWheel<>(Duration.ofMillis(10), 0);
+        wheel.schedule("a", 25);
+        wheel.schedule("b", 30);
+        wheel.schedule("c", 100);
+        assertThat(wheel.size()).isEqualTo(3);
+
+        assertThat(wheel.advance(20)).isEmpty();
+        assertThat(wheel.advance(29)).isEmpty();
+        assertThat(wheel.advance(30)).containsExactlyInAnyOrder("a", "b");
+        assertThat(wheel.advance(99)).isEmpty();
+        assertThat(wheel.advance(100)).containsExactly("c");
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void should_return_100k_items_never_early_and_at_most_one_tick_late() {
+        long tick = 10;
+        long horizon = Duration.ofHours(2).toMillis();
+        TimingWheel<Long> wheel = new TimingWheel<>(Duration.ofMillis(tick), 0);
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            long deadline = random.nextLong(horizon);
+            wheel.schedule(deadline, deadline);
+        }
+        List<Long> due = new ArrayList<>();
+        for (long now = 0; now <= horizon; now += tick) {
+            for (Long deadline : wheel.advance(now)) {
+                assertThat(deadline).isBetween(now - tick + 1, now);
+                due.add(deadline);
+            }
+        }
+        assertThat(due).hasSize(100_000);
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void should_cancel_items() {
+        TimingWheel<Integer> wheel = new TimingWheel<>(Duration.ofMillis(1), 0);
+        List<TimingWheel.Timeout<Integer>> timeouts = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            timeouts.add(wheel.schedule(i, i));
+        }
+        for (int i = 0; i < timeouts.size(); i += 2) {
+            assertThat(timeouts.get(i).cancel()).isTrue();
+        }
+        assertThat(wheel.size()).isEqualTo(50_000);
+        assertThat(timeouts.get(0).cancel()).isFalse();
+        assertThat(timeouts.get(0).isCancelled()).isTrue();
+
+        List<Integer> due = wheel.advance(100_000);
+        assertThat(due).hasSize(50_000).allMatch(i -> i % 2 == 1);
+        assertThat(wheel.size()).isZero();
+        assertThat(timeouts.get(1).isExpired()).isTrue();
+        assertThat(timeouts.get(1).cancel()).isFalse();
+    }
+
+    @Test
+    void should_park_deadlines_beyond_wheel_range() {
+        // 2 wheels of 4 slots: 16 ticks range
+        TimingWheel<String> wheel = new TimingWheel<>(Duration.ofMillis(1), 0, 2, 2);
+        wheel.schedule("far", 100);
+        wheel.schedule("near", 3);
+        for (long now = 0; now < 100; now++) {
+            List<String> due = wheel.advance(now);
+            if (now == 3) {
+                assertThat(due).containsExactly("near");
+            } else {
+                assertThat(due).isEmpty();
+            }
+        }
+        assertThat(wheel.advance(100)).containsExactly("far");
+    }
+
+    @Test
+    void should_return_passed_deadline_on_next_advance() {
+        TimingWheel<String> wheel = new TimingWheel<>(Duration.ofMillis(10), 1_000);
+        wheel.schedule("late", 0);
+        assertThat(wheel.advance(1_000)).containsExactly("late");
+    }
+
+    @Test
+    void should_jump_ahead_when_empty() {
+        TimingWheel<String> wheel = new TimingWheel<>(Duration.ofMillis(1), 0);
+        assertThat(wheel.advance(Duration.ofDays(365).toMillis())).isEmpty();
+        long now = Duration.ofDays(365).toMillis();
+        wheel.schedule("a", now + 5);
+        assertThat(wheel.advance(now + 4)).isEmpty();
+        assertThat(wheel.advance(now + 5)).containsExactly("a");
+    }
+
+    @Test
+    void should_reject_sub_millisecond_tick() {
+        assertThatCode(() -> new TimingWheel<>(Duration.ofNanos(10), 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -17,6 +17,7 @@ package io.gravitee.secrets.api.spec;
 
 import static org.junit.jupiter.params.provider.Arguments.arguments;
 
+import io.gravitee.secrets.api.core.SecretURLCache;
 import io.gravitee.secrets.api.el.FieldKind;
 import java.time.Duration;
 import java.util.List;
@@ -179,4 +180,13 @@ class SecretSpecTest {
             .containsEntry("reloadOnChange", List.of("true"))
             .containsEntry("renewable", List.of("true"));
     }
+
+    @Test
+    void should_take_secret_url_from_cache_when_given_one() {
+        SecretSpec spec = new SecretSpec(null, null, "/foo/bar", "baz", STATIC_KEY, GENERATED, null, null, null, "dev", false, false);
+        SecretURLCache cache = new SecretURLCache();
+        Assertions.assertThat(spec.toSecretURL(cache)).isSameAs(spec.toSecretURL(cache)).isEqualTo(spec.toSecretURL());
+        Assertions.assertThat(spec.toSecretURL()).isNotSameAs(spec.toSecretURL());
+        Assertions.assertThat(cache.size()).isEqualTo(1);
+    }
 }
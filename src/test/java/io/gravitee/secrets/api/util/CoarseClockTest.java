@@ -0,0 +1,76 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.secrets.api.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.awaitility.Awaitility.await;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author GraviteeSource Team
+ */
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class CoarseClockTest {
+
+    @Test
+    void should_refresh_time_on_tick() {
+        ManualClock source = new ManualClock(Instant.parse("2024-01-01T00:00:00Z"));
+        try (CoarseClock clock = CoarseClock.start(source, Duration.ofMillis(1))) {
+            assertThat(clock.instant()).isEqualTo(source.instant());
+            source.advance(Duration.ofMinutes(1));
+            await().atMost(1, TimeUnit.SECONDS).untilAsserted(() -> assertThat(clock.instant()).isEqualTo(source.instant()));
+            assertThat(clock.millis()).isEqualTo(source.millis());
+            assertThat(clock.withZone(ZoneId.of("Europe/Paris")).millis()).isEqualTo(source.millis());
+        }
+    }
+
+    @Test
+    void should_stop_refreshing_when_closed() {
+        ManualClock source = new ManualClock(Instant.parse("2024-01-01T00:00:00Z"));
+        CoarseClock clock = CoarseClock.start(source, Duration.ofMillis(1));
+        assertThat(clock.isStopped()).isFalse();
+
+        clock.close();
+        await().atMost(1, TimeUnit.SECONDS).until(clock::isStopped);
+        long stoppedAt = clock.millis();
+        source.advance(Duration.ofMinutes(1));
+        assertThat(clock.millis()).isEqualTo(stoppedAt).isLessThan(source.millis());
+    }
+
+    @Test
+    void should_share_a_running_clock_that_closing_does_not_stop() {
+        CoarseClock shared = CoarseClock.shared();
+        shared.close();
+        assertThat(shared.isStopped()).isFalse();
+
+        long before = shared.millis();
+        await().atMost(1, TimeUnit.SECONDS).until(() -> shared.millis() > before);
+        assertThat(CoarseClock.shared()).isSameAs(shared);
+    }
+
+    @Test
+    void should_reject_sub_millisecond_tick() {
+        assertThatCode(() -> CoarseClock.start(Duration.ofNanos(10))).isInstanceOf(IllegalArgumentException.class);
+    }
+}